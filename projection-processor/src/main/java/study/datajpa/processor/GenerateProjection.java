@@ -0,0 +1,24 @@
+package study.datajpa.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 인터페이스 프로젝션의 구현 클래스(<인터페이스이름>Dto)를 컴파일 시점에 만든다.
+ * 리포지토리에서 Dto 클래스를 반환 타입으로 쓰면 프록시, SpEL 평가 없이 생성자 호출만 한다.
+ *
+ * - getXxx() : xxx 필드를 그대로 반환
+ * - @Value("#{target.a + ' ' + target.b}") : 문자열 더하기로 바꿔서 컴파일 (target.속성, '문자열', + 만 지원)
+ *   target 속성의 타입은 source 엔티티의 필드에서 찾는다.
+ * */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateProjection {
+
+    /**
+     * @Value 에서 target 으로 쓰는 엔티티
+     * */
+    Class<?> source() default void.class;
+}
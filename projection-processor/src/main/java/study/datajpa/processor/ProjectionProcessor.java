@@ -0,0 +1,267 @@
+package study.datajpa.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @GenerateProjection 이 붙은 인터페이스마다 구현 클래스를 만든다.
+ * */
+@SupportedAnnotationTypes("study.datajpa.processor.GenerateProjection")
+public class ProjectionProcessor extends AbstractProcessor {
+
+    private static final String VALUE_ANNOTATION = "org.springframework.beans.factory.annotation.Value";
+    private static final String SUFFIX = "Dto";
+    private static final Pattern EXPRESSION = Pattern.compile("^#\\{(.*)}$", Pattern.DOTALL);
+    private static final Pattern TARGET_PROPERTY = Pattern.compile("^target\\.([A-Za-z_][A-Za-z0-9_]*)$");
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateProjection.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error("@GenerateProjection 은 인터페이스에만 붙일 수 있습니다.", element);
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (ProjectionException e) {
+                error(e.getMessage(), e.element);
+            } catch (IOException e) {
+                error("프로젝션 클래스 생성 실패 " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String className = type.getSimpleName() + SUFFIX;
+        TypeElement source = sourceOf(type);
+
+        Map<String, String> properties = new LinkedHashMap<>();  //속성 이름 -> 타입 (생성자 파라미터 순서)
+        List<String> methods = new ArrayList<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT) || !method.getParameters().isEmpty()) {
+                continue;
+            }
+            String returnType = method.getReturnType().toString();
+            String expression = valueOf(method);
+            String body;
+            if (expression != null) {
+                body = compile(expression, method, source, properties);
+            } else {
+                String property = propertyName(method);
+                properties.putIfAbsent(property, returnType);
+                body = property;
+            }
+            methods.add("    @Override\n" +
+                    "    public " + returnType + " " + method.getSimpleName() + "() {\n" +
+                    "        return " + body + ";\n" +
+                    "    }\n");
+        }
+
+        StringBuilder code = new StringBuilder();
+        code.append("package ").append(packageName).append(";\n\n");
+        code.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        code.append("public final class ").append(className).append(" implements ")
+                .append(type.getQualifiedName()).append(" {\n\n");
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            code.append("    private final ").append(property.getValue()).append(' ')
+                    .append(property.getKey()).append(";\n");
+        }
+        code.append("\n    public ").append(className).append('(')
+                .append(parameters(properties)).append(") {\n");
+        for (String property : properties.keySet()) {
+            code.append("        this.").append(property).append(" = ").append(property).append(";\n");
+        }
+        code.append("    }\n\n");
+        for (String method : methods) {
+            code.append(method).append('\n');
+        }
+        code.append("    @Override\n");
+        code.append("    public String toString() {\n");
+        code.append("        return \"").append(className).append("{\"");
+        String separator = "";
+        for (String property : properties.keySet()) {
+            code.append(" + \"").append(separator).append(property).append("=\" + ").append(property);
+            separator = ", ";
+        }
+        code.append(" + \"}\";\n");
+        code.append("    }\n");
+        code.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile(packageName + "." + className, type)
+                .openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    /**
+     * #{target.username + ' ' + target.age} -> "" + username + " " + age
+     * */
+    private String compile(String expression, ExecutableElement method, TypeElement source,
+                           Map<String, String> properties) {
+        Matcher matcher = EXPRESSION.matcher(expression.trim());
+        if (!matcher.matches()) {
+            throw new ProjectionException("#{...} 형식이 아닙니다. " + expression, method);
+        }
+        List<String> parts = new ArrayList<>();
+        for (String token : splitPlus(matcher.group(1), method)) {
+            if (token.length() >= 2 && token.startsWith("'") && token.endsWith("'")) {
+                String literal = token.substring(1, token.length() - 1).replace("''", "'");
+                parts.add('"' + literal.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+                continue;
+            }
+            Matcher property = TARGET_PROPERTY.matcher(token);
+            if (!property.matches()) {
+                throw new ProjectionException("지원하지 않는 SpEL 입니다. (target.속성, '문자열', + 만 가능) " + token, method);
+            }
+            String name = property.group(1);
+            if (source == null) {
+                throw new ProjectionException("target 속성을 쓰려면 @GenerateProjection(source = ...) 가 필요합니다.", method);
+            }
+            properties.putIfAbsent(name, fieldType(source, name, method));
+            parts.add(name);
+        }
+        if (parts.size() == 1 && !"java.lang.String".equals(method.getReturnType().toString())) {
+            return parts.get(0);
+        }
+        return "\"\" + " + String.join(" + ", parts);
+    }
+
+    //따옴표 안의 + 는 나누지 않는다.
+    private static List<String> splitPlus(String expression, ExecutableElement method) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;  // '' 는 닫고 바로 여는 것과 같아서 그대로 둬도 된다.
+            }
+            if (c == '+' && !quoted) {
+                tokens.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new ProjectionException("따옴표가 닫히지 않았습니다. " + expression, method);
+        }
+        tokens.add(current.toString().trim());
+        return tokens;
+    }
+
+    private String fieldType(TypeElement source, String name, Element element) {
+        TypeElement current = source;
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name) && !field.getModifiers().contains(Modifier.STATIC)) {
+                    return field.asType().toString();
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+        throw new ProjectionException(source.getSimpleName() + " 에 " + name + " 필드가 없습니다.", element);
+    }
+
+    private static TypeElement sourceOf(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().toString().equals(GenerateProjection.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("source")) {
+                    TypeMirror value = (TypeMirror) entry.getValue().getValue();
+                    return value.getKind() == TypeKind.DECLARED
+                            ? (TypeElement) ((DeclaredType) value).asElement()
+                            : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String valueOf(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().toString().equals(VALUE_ANNOTATION)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    return (String) entry.getValue().getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String propertyName(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        String property = name;
+        if (name.startsWith("get") && name.length() > 3) {
+            property = name.substring(3);
+        } else if (name.startsWith("is") && name.length() > 2) {
+            property = name.substring(2);
+        }
+        return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+    }
+
+    private static String parameters(Map<String, String> properties) {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(property.getValue()).append(' ').append(property.getKey());
+        }
+        return result.toString();
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class ProjectionException extends RuntimeException {
+        private final transient Element element;
+
+        ProjectionException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package study.datajpa.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 샘플 인터페이스를 javac 로 컴파일하면서 프로세서를 돌리고 생성된 소스를 확인한다.
+ * 스프링 @Value 는 이름만 맞으면 되니까 같은 이름의 어노테이션을 같이 컴파일한다.
+ * */
+class ProjectionProcessorTest {
+
+    static final String VALUE = "package org.springframework.beans.factory.annotation;\n" +
+            "public @interface Value { String value(); }\n";
+
+    static final String PERSON = "package sample;\n" +
+            "public class Person { private String name; private int age; }\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void generatesProjection() throws Exception {
+        Compilation compilation = compile(
+                source("org/springframework/beans/factory/annotation/Value.java", VALUE),
+                source("sample/Person.java", PERSON),
+                source("sample/PersonView.java", "package sample;\n" +
+                        "import org.springframework.beans.factory.annotation.Value;\n" +
+                        "import study.datajpa.processor.GenerateProjection;\n" +
+                        "@GenerateProjection(source = Person.class)\n" +
+                        "public interface PersonView {\n" +
+                        "    String getName();\n" +
+                        "    @Value(\"#{target.name + ' (' + target.age + ')'}\")\n" +
+                        "    String getLabel();\n" +
+                        "}\n"));
+
+        assertThat(compilation.success).as(compilation.errors()).isTrue();
+        String generated = compilation.generated("sample/PersonViewDto.java");
+        assertThat(generated)
+                .contains("public final class PersonViewDto implements sample.PersonView")
+                .contains("public PersonViewDto(java.lang.String name, int age)")
+                .contains("return \"\" + name + \" (\" + age + \")\";")
+                .doesNotContain("SpelExpression");
+
+        //생성자 호출만으로 동작하는지
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes.toUri().toURL()},
+                getClass().getClassLoader())) {
+            Object view = loader.loadClass("sample.PersonViewDto")
+                    .getConstructor(String.class, int.class)
+                    .newInstance("kim", 10);
+            assertThat(view.getClass().getMethod("getLabel").invoke(view)).isEqualTo("kim (10)");
+            assertThat(view.getClass().getMethod("getName").invoke(view)).isEqualTo("kim");
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedExpression() throws Exception {
+        Compilation compilation = compile(
+                source("org/springframework/beans/factory/annotation/Value.java", VALUE),
+                source("sample/Person.java", PERSON),
+                source("sample/AgeView.java", "package sample;\n" +
+                        "import org.springframework.beans.factory.annotation.Value;\n" +
+                        "import study.datajpa.processor.GenerateProjection;\n" +
+                        "@GenerateProjection(source = Person.class)\n" +
+                        "public interface AgeView {\n" +
+                        "    @Value(\"#{target.age * 2}\")\n" +
+                        "    int getDouble();\n" +
+                        "}\n"));
+
+        assertThat(compilation.success).isFalse();
+        assertThat(compilation.errors()).contains("지원하지 않는 SpEL 입니다.");
+    }
+
+    @Test
+    public void rejectsClass() throws Exception {
+        Compilation compilation = compile(source("sample/NotInterface.java", "package sample;\n" +
+                "@study.datajpa.processor.GenerateProjection\n" +
+                "public class NotInterface { }\n"));
+
+        assertThat(compilation.success).isFalse();
+        assertThat(compilation.errors()).contains("인터페이스에만 붙일 수 있습니다.");
+    }
+
+    private Path source(String path, String code) throws IOException {
+        Path file = dir.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, code.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Compilation compile(Path... sources) throws IOException {
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        Path generated = Files.createDirectories(dir.resolve("generated"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = new ArrayList<>(Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", ProjectionProcessor.class.getName(),
+                    "-d", classes.toString(),
+                    "-s", generated.toString()));
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(sources)).call();
+            return new Compilation(success, diagnostics.getDiagnostics(), classes, generated);
+        }
+    }
+
+    private static class Compilation {
+        final boolean success;
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        final Path classes;
+        final Path generatedSources;
+
+        Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                    Path classes, Path generatedSources) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.classes = classes;
+            this.generatedSources = generatedSources;
+        }
+
+        String errors() {
+            return diagnostics.stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(diagnostic -> diagnostic.getMessage(null))
+                    .collect(Collectors.joining("\n"));
+        }
+
+        String generated(String path) throws IOException {
+            return new String(Files.readAllBytes(generatedSources.resolve(path)), StandardCharsets.UTF_8);
+        }
+    }
+}
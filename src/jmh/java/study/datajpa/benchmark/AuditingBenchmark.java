@@ -0,0 +1,90 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 등록자/시각을 찍는 비용
+ * - legacy: 엔티티마다 UUID.randomUUID(SecureRandom), LocalDateTime.now()
+ * - cached: 트랜잭션마다 등록자 한번, 1ms 단위 시계, flush/batch 단위로 같은 시각
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuditingBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"legacy", "cached"})
+    public String auditing;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private MemberRepository memberRepository;
+    private TeamRepository teamRepository;
+    private AuditorAware<String> auditorAware;
+    private DateTimeProvider dateTimeProvider;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        boolean cached = "cached".equals(auditing);
+        context = JmhContext.start("auditing" + auditing,
+                "auditing.auditor-cache=" + cached,
+                "auditing.clock.resolution-ms=" + (cached ? 1 : 0),
+                "member.init.enabled=false");
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberRepository = context.getBean(MemberRepository.class);
+        teamRepository = context.getBean(TeamRepository.class);
+        auditorAware = context.getBean(AuditorAware.class);
+        dateTimeProvider = context.getBean("auditingDateTimeProvider", DateTimeProvider.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //대량 저장 전체 (insert 포함) - 감사 비용이 차지하는 비율
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long saveAllBatched() {
+        return tx.execute(status -> memberRepository.saveAllBatched(IntStream.range(0, BATCH)
+                .mapToObj(i -> new Member("audit" + i, i))));
+    }
+
+    //팀 이름을 바꾸고 flush - @PreUpdate 마다 시각
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void updateTeams() {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 100; i++) {
+                teamRepository.save(new Team("team" + i)).setName("renamed" + i);
+            }
+        });
+    }
+
+    //감사 정보만 - 엔티티 하나에 등록자 + 생성/수정 시각
+    @Benchmark
+    public Object auditOnly() {
+        return tx.execute(status -> {
+            Object last = null;
+            for (int i = 0; i < BATCH; i++) {
+                last = auditorAware.getCurrentAuditor();
+                last = dateTimeProvider.getNow();
+            }
+            return last;
+        });
+    }
+}
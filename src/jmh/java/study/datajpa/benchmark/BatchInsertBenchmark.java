@@ -0,0 +1,57 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 회원 대량 저장
+ * - batched: saveAllBatched - batch_size 마다 flush 하고 저장한 것만 1차 캐시에서 뺀다.
+ * - loop: save() 반복 - 커밋할때 한번에 flush, 1차 캐시와 스냅샷이 끝까지 쌓인다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchInsertBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JmhContext.start("insert" + size, "member.init.enabled=false");
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberRepository = context.getBean(MemberRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long batched() {
+        return tx.execute(status -> memberRepository.saveAllBatched(IntStream.range(0, size)
+                .mapToObj(i -> new Member("batched" + i, i))));
+    }
+
+    @Benchmark
+    public int loop() {
+        return tx.execute(status -> {
+            for (int i = 0; i < size; i++) {
+                memberRepository.save(new Member("loop" + i, i));
+            }
+            return size;
+        });
+    }
+}
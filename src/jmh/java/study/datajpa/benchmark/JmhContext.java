@@ -0,0 +1,30 @@
+package study.datajpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 - 임베디드(메모리) H2 로 띄운다.
+ * SQL 로그, p6spy 는 측정에 방해되니까 끈다.
+ * */
+public final class JmhContext {
+
+    private JmhContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String name, String... properties) {
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "decorator.datasource.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "spring.main.banner-mode=off")
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,104 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.config.OptimisticRetryExecutor;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 같은 행을 여러 쓰레드가 동시에 수정할 때
+ * - pessimistic: findLockByUsername (select for update) - 락 잡고 줄서기
+ * - optimistic: @Version + OptimisticRetryExecutor - 충돌나면 backoff 후 재시도
+ * 한 번 실행 = threads 개 쓰레드가 각각 UPDATES_PER_THREAD 번 수정, hotRows 가 적을수록 충돌이 많다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LockContentionBenchmark {
+
+    private static final int UPDATES_PER_THREAD = 20;
+
+    @Param({"1", "4", "8", "16"})
+    public int threads;
+
+    @Param({"1", "16"})
+    public int hotRows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private OptimisticRetryExecutor retryExecutor;
+    private MemberRepository memberRepository;
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String name = "contention" + threads + "_" + hotRows;
+        context = JmhContext.start(name,
+                //H2 기본 락 대기(1초)로는 16 쓰레드 줄서기를 못버틴다.
+                "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                "retry.optimistic.max-attempts=100",
+                "member.init.enabled=false");
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        retryExecutor = context.getBean(OptimisticRetryExecutor.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < hotRows; i++) {
+                memberRepository.save(new Member(username(i), 0));
+            }
+        });
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void pessimistic() throws Exception {
+        run(username -> tx.executeWithoutResult(status -> {
+            Member member = memberRepository.findLockByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+        }));
+    }
+
+    @Benchmark
+    public void optimistic() throws Exception {
+        run(username -> retryExecutor.execute(status -> {
+            Member member = memberRepository.findListByUsername(username).get(0);
+            member.setAge(member.getAge() + 1);
+            return null;
+        }));
+    }
+
+    private void run(Consumer<String> update) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    update.accept(username(ThreadLocalRandom.current().nextInt(hotRows)));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();  //실패하면 예외로 드러나게
+        }
+    }
+
+    private static String username(int i) {
+        return "hot" + i;
+    }
+}
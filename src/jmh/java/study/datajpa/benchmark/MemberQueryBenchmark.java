@@ -0,0 +1,135 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.MemberProjectionDto;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.UsernameOnly;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * MemberRepositoryTest 에서 로그로만 비교하던 조회 전략들을 수치로 비교한다.
+ * - 연관관계: fetch join vs @EntityGraph vs 지연로딩 + batch fetch
+ * - 페이징: Page vs Slice
+ * - 프로젝션: DTO 생성자 vs 인터페이스(native) vs SpEL(UsernameOnly)
+ *   셋 다 전체 회원을 team left join 으로 읽는다. (페이지 크기가 전체보다 커서 count 쿼리 없음)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberQueryBenchmark {
+
+    private static final int TEAM_COUNT = 10;
+    private static final int MEMBER_COUNT = 1000;
+    private static final int PAGE_SIZE = 20;
+
+    // 0 이면 batch fetch 안함 (순수 N + 1)
+    @Param({"0", "100"})
+    public int batchFetchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JmhContext.start("query" + batchFetchSize,
+                "spring.jpa.properties.hibernate.default_batch_fetch_size=" + batchFetchSize);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberRepository = context.getBean(MemberRepository.class);
+        TeamRepository teamRepository = context.getBean(TeamRepository.class);
+
+        tx.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (int i = 0; i < TEAM_COUNT; i++) {
+                teams.add(teamRepository.save(new Team("team" + i)));
+            }
+            memberRepository.saveAllBatched(IntStream.range(0, MEMBER_COUNT)
+                    .mapToObj(i -> new Member("member" + i, i % 50, teams.get(i % TEAM_COUNT))));
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void fetchJoin(Blackhole bh) {
+        tx.executeWithoutResult(status -> touchTeams(memberRepository.findMemberFetchJoin(), bh));
+    }
+
+    @Benchmark
+    public void entityGraph(Blackhole bh) {
+        tx.executeWithoutResult(status -> touchTeams(memberRepository.findMemberEntityGraph(), bh));
+    }
+
+    @Benchmark
+    public void lazyLoading(Blackhole bh) {
+        tx.executeWithoutResult(status -> touchTeams(memberRepository.findMemberCustom(), bh));
+    }
+
+    @Benchmark
+    public void page(Blackhole bh) {
+        tx.executeWithoutResult(status -> bh.consume(memberRepository.findByAge(10, pageRequest()).getContent()));
+    }
+
+    @Benchmark
+    public void slice(Blackhole bh) {
+        tx.executeWithoutResult(status -> bh.consume(memberRepository.findSliceByAge(10, pageRequest()).getContent()));
+    }
+
+    @Benchmark
+    public void dtoProjection(Blackhole bh) {
+        tx.executeWithoutResult(status -> {
+            for (MemberProjectionDto dto : memberRepository.findProjectionDtoPage(allRows())) {
+                bh.consume(dto.getTeamName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void interfaceProjection(Blackhole bh) {
+        tx.executeWithoutResult(status -> {
+            for (MemberProjection projection : memberRepository.findByNativeProjection(allRows())) {
+                bh.consume(projection.getTeamName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void spelProjection(Blackhole bh) {
+        tx.executeWithoutResult(status -> {
+            for (UsernameOnly usernameOnly : memberRepository.findProjectionsBy(allRows())) {
+                bh.consume(usernameOnly.geUsername());
+            }
+        });
+    }
+
+    private static PageRequest allRows() {
+        return PageRequest.of(0, MEMBER_COUNT + 1);
+    }
+
+    private static PageRequest pageRequest() {
+        return PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "username"));
+    }
+
+    private static void touchTeams(List<Member> members, Blackhole bh) {
+        for (Member member : members) {
+            bh.consume(member.getTeam().getName());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.batch.MemberPartitionScanner;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 전체 회원을 읽어서 나이 합계 - 워커 수(parallelism)에 따라 얼마나 빨라지는지
+ * parallelism 은 커넥션 풀 크기도 같이 맞춘다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PartitionScanBenchmark {
+
+    private static final int MEMBER_COUNT = 100_000;
+    private static final long LEAF_SIZE = 5_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private MemberPartitionScanner scanner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JmhContext.start("scan" + parallelism,
+                "batch.scan.parallelism=" + parallelism,
+                "spring.datasource.hikari.maximum-pool-size=" + (parallelism + 1),
+                "member.init.enabled=false");
+        scanner = context.getBean(MemberPartitionScanner.class);
+        context.getBean(MemberRepository.class).saveAllBatched(IntStream.range(0, MEMBER_COUNT)
+                .mapToObj(i -> new Member("scan" + i, i % 100)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long ageSum() {
+        return scanner.reduce(LEAF_SIZE, member -> (long) member.getAge(), 0L, Long::sum);
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 기동 시간 - 컨텍스트를 띄우고 닫을 때까지 (한번씩)
+ * - bootstrapMode: default(동기) vs deferred(EntityManagerFactory 백그라운드 초기화)
+ * - 쿼리 warm-up 켜고 끔
+ * 컴포넌트 인덱스(spring-context-indexer) 효과는 -Dspring.index.ignore=true 로 따로 비교한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class StartupBenchmark {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Param({"default", "deferred"})
+    public String bootstrapMode;
+
+    @Param({"true", "false"})
+    public boolean warmup;
+
+    @Benchmark
+    public void startAndClose() {
+        try (ConfigurableApplicationContext context = JmhContext.start("startup" + SEQ.incrementAndGet(),
+                "spring.data.jpa.repositories.bootstrap-mode=" + bootstrapMode,
+                "query.warmup.enabled=" + warmup,
+                "member.init.enabled=false")) {
+            context.getStartupDate();
+        }
+    }
+}
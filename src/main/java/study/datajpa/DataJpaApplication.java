@@ -1,15 +1,21 @@
 package study.datajpa;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import study.datajpa.entity.audit.AuditClock;
+import study.datajpa.entity.audit.CachedAuditorAware;
 
+import java.time.Clock;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
 @SpringBootApplication
 public class  DataJpaApplication {
 
@@ -18,8 +24,28 @@ public class  DataJpaApplication {
 	}
 
 	@Bean
-	public AuditorAware<String> auditorProvider() {
+	public AuditorAware<String> auditorProvider(@Value("${auditing.auditor-cache:true}") boolean cache) {
 		//실제로는 시큐리티 쓰면 세션을 꺼내서 세팅해줘야한다.
-		return () -> Optional.of(UUID.randomUUID().toString());
+		if (!cache) {
+			return () -> Optional.of(UUID.randomUUID().toString());
+		}
+		//요청(없으면 트랜잭션)마다 한번만 - UUID.randomUUID 는 SecureRandom 이라 비싸다.
+		return new CachedAuditorAware(() -> randomUuid().toString());
+	}
+
+	//@CreatedDate, @LastModifiedDate 도 JpaBaseEntity 와 같은 시계를 쓴다. resolution-ms: 0 이면 매번 now()
+	@Bean
+	public DateTimeProvider auditingDateTimeProvider(
+			@Value("${auditing.clock.resolution-ms:" + AuditClock.DEFAULT_RESOLUTION_MILLIS + "}") long resolutionMillis) {
+		AuditClock.configure(Clock.systemDefaultZone(), resolutionMillis);
+		return () -> Optional.of(AuditClock.now());
+	}
+
+	//버전 4 UUID 형식은 같고 난수만 ThreadLocalRandom (보안 용도 아님)
+	private static UUID randomUuid() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(msb, lsb);
 	}
 }
@@ -0,0 +1,45 @@
+package study.datajpa.batch;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import study.datajpa.entity.audit.AuditClock;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * 나눠서 하는 bulk update 가 어디까지 끝났는지 - 청크 update 와 같은 트랜잭션으로 커밋한다.
+ * 중간에 죽으면 nextId 부터 다시 시작, 다 끝나면 지운다.
+ * 청크마다 이 row 를 먼저 잠근다. (PESSIMISTIC_WRITE) 같은 작업을 두 곳에서 돌려도 청크는 한번만 적용된다.
+ * */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class BulkUpdateCheckpoint {
+
+    @Id
+    private String jobName;
+    private long startId;
+    private long endId;        // 시작할때 max(member_id) + 1 - 이후에 들어온 회원은 대상이 아니다.
+    private long nextId;
+    private long updatedRows;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;   // 마지막 청크 커밋
+
+    public BulkUpdateCheckpoint(String jobName, long startId, long endId) {
+        this.jobName = jobName;
+        this.startId = startId;
+        this.endId = endId;
+        this.nextId = startId;
+        this.startedAt = AuditClock.now();
+        this.updatedAt = this.startedAt;
+    }
+
+    public void advance(long nextId, long updatedRows) {
+        this.nextId = nextId;
+        this.updatedRows += updatedRows;
+        this.updatedAt = AuditClock.now();
+    }
+}
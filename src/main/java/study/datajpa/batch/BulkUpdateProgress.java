@@ -0,0 +1,43 @@
+package study.datajpa.batch;
+
+import lombok.Getter;
+
+/**
+ * 청크 하나가 커밋될때마다 넘겨주는 진행 상황
+ * */
+@Getter
+public final class BulkUpdateProgress {
+
+    private final String jobName;
+    private final IdRange chunk;
+    private final long chunkUpdatedRows;
+    private final long totalUpdatedRows;   // 재시작했으면 이전 실행분 포함
+    private final long startId;
+    private final long endId;
+
+    public BulkUpdateProgress(String jobName, IdRange chunk, long chunkUpdatedRows, long totalUpdatedRows,
+                              long startId, long endId) {
+        this.jobName = jobName;
+        this.chunk = chunk;
+        this.chunkUpdatedRows = chunkUpdatedRows;
+        this.totalUpdatedRows = totalUpdatedRows;
+        this.startId = startId;
+        this.endId = endId;
+    }
+
+    public boolean isDone() {
+        return chunk.getTo() >= endId;
+    }
+
+    //member_id 구간 기준 진행률 (0 ~ 100)
+    public double percent() {
+        long width = endId - startId;
+        return width == 0 ? 100 : (chunk.getTo() - startId) * 100.0 / width;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %.1f%% (chunk=%d, total=%d)", jobName, chunk, percent(),
+                chunkUpdatedRows, totalUpdatedRows);
+    }
+}
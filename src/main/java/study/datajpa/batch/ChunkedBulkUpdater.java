@@ -0,0 +1,176 @@
+package study.datajpa.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * member 전체 bulk update 를 member_id 구간(청크)으로 나눠서 실행한다.
+ * - 청크마다 커밋 - 락을 잡는 시간, undo/redo 가 청크 크기만큼만
+ * - 청크 사이에 pause 만큼 쉰다. (다른 트랜잭션에 양보)
+ * - 진행 상황은 BulkUpdateCheckpoint 에 청크와 같은 트랜잭션으로 남긴다. 죽었다 다시 돌리면 이어서 한다.
+ * - 청크 트랜잭션은 체크포인트를 잠그고 시작한다. 같은 작업이 다른 곳에서 이미 이 구간을 했으면 멈춘다.
+ * - 이어서 할때는 언제 시작했든 nextId 부터 (update 가 age + 1 처럼 두번 하면 안되는 경우가 있다)
+ *   처음 시작할때 정한 구간(endId) 이후에 들어온 회원은 대상이 아니다. 처음부터 다시 하려면 abandon()
+ *
+ * jpql 에는 :from, :to 구간 조건이 있어야 한다.
+ * update Member m set m.age = m.age + 1 where m.age >= :age and m.id >= :from and m.id < :to
+ *
+ * 바깥 트랜잭션 안에서 부르지 않는다. (청크마다 REQUIRES_NEW)
+ * */
+@Slf4j
+@Component
+public class ChunkedBulkUpdater {
+
+    public static final String FROM = "from";
+    public static final String TO = "to";
+
+    private final EntityManager em;
+    private final TransactionTemplate chunkTx;
+    private final long defaultChunkSize;
+    private final long defaultPauseMillis;
+
+    public ChunkedBulkUpdater(EntityManager em, PlatformTransactionManager transactionManager,
+                              @Value("${batch.bulk-update.chunk-size:1000}") long defaultChunkSize,
+                              @Value("${batch.bulk-update.pause-ms:0}") long defaultPauseMillis) {
+        this.em = em;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultChunkSize = defaultChunkSize;
+        this.defaultPauseMillis = defaultPauseMillis;
+    }
+
+    public long execute(String jobName, String jpql, Map<String, ?> params) {
+        return execute(jobName, jpql, params, defaultChunkSize, defaultPauseMillis,
+                progress -> log.debug("bulk update {}", progress));
+    }
+
+    /**
+     * 바뀐 row 수 합계를 돌려준다. (이어서 했으면 이전 실행분 포함)
+     * jobName 이 같으면 같은 작업으로 보고 남은 체크포인트부터 이어서 한다. (abandon 하기 전까지)
+     * listener 에서 예외가 나면 거기서 멈추고, 그때까지 커밋된 청크는 체크포인트에 남는다.
+     * 같은 작업을 다른 곳에서 먼저 진행했으면 거기서 멈춘다. 나머지는 그쪽이 끝낸다.
+     * */
+    public long execute(String jobName, String jpql, Map<String, ?> params,
+                        long chunkSize, long pauseMillis, Consumer<BulkUpdateProgress> listener) {
+        if (!jpql.contains(":" + FROM) || !jpql.contains(":" + TO)) {
+            throw new IllegalArgumentException("jpql 에 :from, :to 구간 조건이 있어야 합니다. " + jpql);
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다. " + chunkSize);
+        }
+
+        BulkUpdateCheckpoint checkpoint = start(jobName);
+        if (checkpoint == null) {
+            return 0;  //회원이 없다.
+        }
+        long total = checkpoint.getUpdatedRows();
+        long from = checkpoint.getNextId();
+        while (from < checkpoint.getEndId()) {
+            IdRange chunk = new IdRange(from, Math.min(checkpoint.getEndId(), from + chunkSize));
+            Integer updated = chunkTx.execute(status -> {
+                //update 보다 먼저 잠근다. 다른 실행은 이 청크가 커밋될때까지 기다렸다가 바뀐 nextId 를 본다.
+                BulkUpdateCheckpoint current = em.find(BulkUpdateCheckpoint.class, jobName, LockModeType.PESSIMISTIC_WRITE);
+                if (current == null || current.getNextId() != chunk.getFrom()) {
+                    return null;  //다른 실행이 이미 했다. (다 끝났으면 지웠다)
+                }
+                Query query = em.createQuery(jpql);
+                params.forEach(query::setParameter);
+                int count = query.setParameter(FROM, chunk.getFrom())
+                        .setParameter(TO, chunk.getTo())
+                        .executeUpdate();
+                current.advance(chunk.getTo(), count);
+                return count;
+            });
+            if (updated == null) {
+                log.warn("bulk update 중단 - {} {} 부터 다른 실행이 진행했습니다.", jobName, chunk);
+                return total;
+            }
+            total += updated;
+            from = chunk.getTo();
+            listener.accept(new BulkUpdateProgress(jobName, chunk, updated, total,
+                    checkpoint.getStartId(), checkpoint.getEndId()));
+            if (from < checkpoint.getEndId()) {
+                pause(pauseMillis);
+            }
+        }
+
+        chunkTx.executeWithoutResult(status -> {
+            BulkUpdateCheckpoint done = em.find(BulkUpdateCheckpoint.class, jobName);
+            if (done != null) {
+                em.remove(done);
+            }
+        });
+        return total;
+    }
+
+    /**
+     * 남아 있는 체크포인트를 버린다. 다음 execute 는 처음부터 한다. (이미 커밋된 청크에 다시 적용된다)
+     * 이어서 하지 않을 작업일때만 - 처음부터 다시 하는 방법은 이것 뿐이다.
+     * */
+    public boolean abandon(String jobName) {
+        return Boolean.TRUE.equals(chunkTx.execute(status -> {
+            BulkUpdateCheckpoint checkpoint = em.find(BulkUpdateCheckpoint.class, jobName, LockModeType.PESSIMISTIC_WRITE);
+            if (checkpoint == null) {
+                return false;
+            }
+            log.info("bulk update 체크포인트 삭제 - {} nextId={}, updatedRows={}",
+                    jobName, checkpoint.getNextId(), checkpoint.getUpdatedRows());
+            em.remove(checkpoint);
+            return true;
+        }));
+    }
+
+    private BulkUpdateCheckpoint start(String jobName) {
+        try {
+            return chunkTx.execute(status -> startOrResume(jobName));
+        } catch (RuntimeException e) {
+            //같은 jobName 으로 동시에 시작해서 insert 가 겹쳤다 - 먼저 만든 쪽 체크포인트를 이어서 쓴다.
+            BulkUpdateCheckpoint existing = chunkTx.execute(status -> em.find(BulkUpdateCheckpoint.class, jobName));
+            if (existing == null) {
+                throw e;
+            }
+            return existing;
+        }
+    }
+
+    private BulkUpdateCheckpoint startOrResume(String jobName) {
+        BulkUpdateCheckpoint checkpoint = em.find(BulkUpdateCheckpoint.class, jobName);
+        if (checkpoint != null) {
+            //오래된 체크포인트여도 이어서 한다. 그 사이 들어온 회원(endId 이후)은 빠진다.
+            log.info("bulk update 이어서 - {} startedAt={}, updatedAt={}, nextId={}, endId={}, updatedRows={}",
+                    jobName, checkpoint.getStartedAt(), checkpoint.getUpdatedAt(), checkpoint.getNextId(),
+                    checkpoint.getEndId(), checkpoint.getUpdatedRows());
+            return checkpoint;
+        }
+        Object[] minMax = em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class)
+                .getSingleResult();
+        if (minMax[0] == null) {
+            return null;
+        }
+        checkpoint = new BulkUpdateCheckpoint(jobName, (Long) minMax[0], (Long) minMax[1] + 1);
+        em.persist(checkpoint);
+        return checkpoint;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("bulk update 대기 중 인터럽트", e);
+        }
+    }
+}
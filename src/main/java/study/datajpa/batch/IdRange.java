@@ -0,0 +1,38 @@
+package study.datajpa.batch;
+
+import lombok.Getter;
+
+/**
+ * member_id 구간 [from, to)
+ * */
+@Getter
+public final class IdRange {
+
+    private final long from;
+    private final long to;
+
+    public IdRange(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("from 이 to 보다 클 수 없습니다. from=" + from + ", to=" + to);
+        }
+        this.from = from;
+        this.to = to;
+    }
+
+    public long width() {
+        return to - from;
+    }
+
+    public IdRange left() {
+        return new IdRange(from, from + width() / 2);
+    }
+
+    public IdRange right() {
+        return new IdRange(from + width() / 2, to);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
@@ -0,0 +1,234 @@
+package study.datajpa.batch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * member 테이블 전체 작업을 member_id 구간으로 나눠서 병렬로 읽는다.
+ * - min ~ max(member_id) 를 반씩 쪼개서 leafSize 이하가 되면 fork-join 워커가 맡는다.
+ * - 구간마다 새 readOnly 트랜잭션 (EntityManager, 커넥션도 따로)
+ * - 워커 수는 커넥션 풀 크기 - 그 이상은 커넥션을 기다리기만 한다.
+ * - 2차 캐시에 넣지 않는다. (전체를 읽으면 캐시를 다 밀어낸다)
+ *
+ * long adults = scanner.reduce(member -> member.getAge() >= 20 ? 1L : 0L, 0L, Long::sum);
+ * */
+@Component
+public class MemberPartitionScanner {
+
+    public static final long DEFAULT_LEAF_SIZE = 10_000;  //워커 하나가 맡는 member_id 폭
+    static final int FETCH_SIZE = 500;
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final ForkJoinPool pool;
+
+    public MemberPartitionScanner(EntityManager em, PlatformTransactionManager transactionManager,
+                                  @Value("${batch.scan.parallelism:${spring.datasource.hikari.maximum-pool-size:10}}")
+                                  int parallelism) {
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("member-scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public <R> R reduce(Function<Member, R> mapper, R identity, BinaryOperator<R> combiner) {
+        return reduce(DEFAULT_LEAF_SIZE, mapper, identity, combiner);
+    }
+
+    /**
+     * 회원마다 mapper 결과를 combiner 로 합친다. combiner 는 순서와 상관없어야 한다. (결합법칙)
+     * */
+    public <R> R reduce(long leafSize, Function<Member, R> mapper, R identity, BinaryOperator<R> combiner) {
+        return scanRanges(leafSize,
+                range -> foldRange(range, identity, (result, member) -> combiner.apply(result, mapper.apply(member))),
+                identity, combiner);
+    }
+
+    /**
+     * 회원마다 mapper 결과를 member_id 순서대로 흘려보낸다. (전체 내보내기)
+     * leafSize 구간마다 워커가 읽고, 스트림은 앞 구간부터 끝나는 대로 이어붙인다.
+     * 미리 읽는 구간은 워커 수 만큼 - 메모리에는 그 구간들의 결과만 있다. (엔티티 말고 작은 DTO 로 받는다)
+     * 다 읽지 않고 그만두면 close 해야 남은 구간을 읽지 않는다. (try-with-resources)
+     * */
+    public <T> Stream<T> map(long leafSize, Function<Member, T> mapper) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("leafSize 는 1 이상이어야 합니다. " + leafSize);
+        }
+        OrderedRanges<T> ranges = new OrderedRanges<>(leafSize, range -> foldRange(range, new ArrayList<T>(),
+                (result, member) -> {
+                    result.add(mapper.apply(member));
+                    return result;
+                }));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(ranges, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(ranges::cancel);
+    }
+
+    /**
+     * 구간마다 work 를 readOnly 트랜잭션 안에서 실행하고 결과를 합친다.
+     * work 안에서는 주입받은 EntityManager 가 그 구간의 트랜잭션에 묶인다.
+     * */
+    public <R> R scanRanges(long leafSize, Function<IdRange, R> work, R empty, BinaryOperator<R> combiner) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("leafSize 는 1 이상이어야 합니다. " + leafSize);
+        }
+        IdRange all = fullRange();
+        if (all == null) {
+            return empty;
+        }
+        return pool.invoke(new RangeTask<>(all, leafSize, work, combiner));
+    }
+
+    //회원이 없으면 null
+    private IdRange fullRange() {
+        return readOnlyTx.execute(status -> {
+            Object[] minMax = em.createQuery("select min(m.id), max(m.id) from Member m", Object[].class)
+                    .getSingleResult();
+            return minMax[0] == null ? null : new IdRange((Long) minMax[0], (Long) minMax[1] + 1);
+        });
+    }
+
+    //fetch size 만큼 읽을때마다 영속성 컨텍스트를 비운다. - 구간이 커도 메모리가 일정
+    private <R> R foldRange(IdRange range, R initial, BiFunction<R, Member, R> step) {
+        try (Stream<Member> members = em.createQuery(
+                        "select m from Member m where m.id >= :from and m.id < :to", Member.class)
+                .setParameter("from", range.getFrom())
+                .setParameter("to", range.getTo())
+                .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)  //스냅샷 안만든다.
+                .setHint("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS)
+                .getResultStream()) {
+            R result = initial;
+            Iterator<Member> iterator = members.iterator();
+            long count = 0;
+            while (iterator.hasNext()) {
+                result = step.apply(result, iterator.next());
+                if (++count % FETCH_SIZE == 0) {
+                    em.clear();
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * leafSize 구간을 앞에서부터 워커 수 만큼 미리 읽고, 결과는 구간 순서대로 하나씩 꺼낸다.
+     * 하나를 꺼내면 다음 구간을 하나 더 맡긴다.
+     * */
+    private class OrderedRanges<T> implements Iterator<List<T>> {
+
+        private final long leafSize;
+        private final Function<IdRange, List<T>> work;
+        private final Deque<ForkJoinTask<List<T>>> inFlight = new ArrayDeque<>();
+        private IdRange all;
+        private long nextFrom;
+        private boolean started;
+        private boolean cancelled;
+
+        OrderedRanges(long leafSize, Function<IdRange, List<T>> work) {
+            this.leafSize = leafSize;
+            this.work = work;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                all = fullRange();  //스트림을 읽기 시작할때
+                nextFrom = all == null ? 0 : all.getFrom();
+                submitAhead();
+            }
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<T> result = inFlight.poll().join();
+            submitAhead();
+            return result;
+        }
+
+        private void submitAhead() {
+            while (!cancelled && all != null && nextFrom < all.getTo() && inFlight.size() < pool.getParallelism()) {
+                IdRange range = new IdRange(nextFrom, Math.min(all.getTo(), nextFrom + leafSize));
+                nextFrom = range.getTo();
+                inFlight.add(pool.submit(() -> readOnlyTx.execute(status -> work.apply(range))));
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            inFlight.forEach(task -> task.cancel(false));
+            inFlight.clear();
+        }
+    }
+
+    private class RangeTask<R> extends RecursiveTask<R> {
+
+        private final IdRange range;
+        private final long leafSize;
+        private final Function<IdRange, R> work;
+        private final BinaryOperator<R> combiner;
+
+        RangeTask(IdRange range, long leafSize, Function<IdRange, R> work, BinaryOperator<R> combiner) {
+            this.range = range;
+            this.leafSize = leafSize;
+            this.work = work;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (range.width() <= leafSize) {
+                return readOnlyTx.execute(status -> work.apply(range));
+            }
+            RangeTask<R> left = new RangeTask<>(range.left(), leafSize, work, combiner);
+            RangeTask<R> right = new RangeTask<>(range.right(), leafSize, work, combiner);
+            left.fork();
+            R rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+}
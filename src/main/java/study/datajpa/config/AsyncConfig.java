@@ -0,0 +1,76 @@
+package study.datajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 리포지토리 비동기 조회용 executor (@Async("repositoryExecutor"))
+ * 동시에 DB 를 쓰는 작업은 커넥션 풀 크기를 넘지 않게 하고, 대기열이 차면 거절한다.
+ * JDK 21 이상이면 가상 쓰레드를 쓴다.
+ * */
+@Slf4j
+@EnableAsync
+@Configuration
+public class AsyncConfig {
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${repository.async.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * 위에서 Executor 빈을 등록하면 스프링 부트 기본 applicationTaskExecutor 가 빠진다. 다시 등록
+     * JPA 초기화(bootstrap-mode: deferred), 기동 후 데이터 넣기 등에 쓴다.
+     * */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService repositoryExecutorService() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            return virtual;
+        }
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(connectionPoolSize, connectionPoolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "repository-" + sequence.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());  //대기열이 차면 거절
+    }
+
+    @Bean
+    public Executor repositoryExecutor(ExecutorService repositoryExecutorService) {
+        if (repositoryExecutorService instanceof ThreadPoolExecutor) {
+            return repositoryExecutorService;  //풀 크기, 대기열로 이미 제한된다.
+        }
+        return new BoundedExecutor(repositoryExecutorService, connectionPoolSize, queueCapacity);
+    }
+
+    //Java 11 로 컴파일하니까 리플렉션으로 찾는다.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("repositoryExecutor - 가상 쓰레드 사용");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
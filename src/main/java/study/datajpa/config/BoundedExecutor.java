@@ -0,0 +1,50 @@
+package study.datajpa.config;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 가상 쓰레드처럼 개수 제한이 없는 executor 앞에 두는 제한
+ * - 대기 포함 최대 작업 수(maxQueued)를 넘으면 바로 거절한다. (요청쪽 backpressure)
+ * - 실제 실행은 커넥션 풀 크기(maxRunning) 만큼만 - 나머지는 쓰레드 안에서 기다린다.
+ * */
+public class BoundedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Semaphore admitted;
+    private final Semaphore running;
+
+    public BoundedExecutor(Executor delegate, int maxRunning, int maxQueued) {
+        this.delegate = delegate;
+        this.admitted = new Semaphore(maxRunning + maxQueued);
+        this.running = new Semaphore(maxRunning);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            throw new TaskRejectedException("처리 가능한 작업 수를 넘었습니다.");
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    running.acquire();
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+}
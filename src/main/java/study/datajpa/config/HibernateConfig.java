@@ -0,0 +1,29 @@
+package study.datajpa.config;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.entity.FetchTuningIntegrator;
+
+import java.util.stream.Collectors;
+
+/**
+ * hibernate.integrator_provider 는 하나만 넣을 수 있다. Integrator 빈을 모아서 한번에 등록한다.
+ * */
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public FetchTuningIntegrator fetchTuningIntegrator() {
+        return new FetchTuningIntegrator();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer integratorProviderCustomizer(ObjectProvider<Integrator> integrators) {
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> integrators.orderedStream().collect(Collectors.toList()));
+    }
+}
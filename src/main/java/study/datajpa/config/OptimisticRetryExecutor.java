@@ -0,0 +1,77 @@
+package study.datajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 낙관적 락(@Version) 충돌나면 작업을 새 트랜잭션으로 다시 실행한다.
+ * - 매번 새 트랜잭션 (영속성 컨텍스트도 새로) - 최신 버전을 다시 읽어야 하니까
+ * - 대기 시간은 지수로 늘리고 0 ~ 상한 사이에서 랜덤 (full jitter) - 같이 충돌난 쓰레드끼리 또 부딪히지 않게
+ * - 바깥 트랜잭션에 참여하면 재시도가 의미 없다. 전파 속성은 REQUIRES_NEW 로 (RetryConfig)
+ * */
+@Slf4j
+public class OptimisticRetryExecutor {
+
+    private final TransactionOperations transactionOperations;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetryExecutor(TransactionOperations transactionOperations,
+                                   int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts 는 1 이상이어야 합니다. " + maxAttempts);
+        }
+        this.transactionOperations = transactionOperations;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T execute(TransactionCallback<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(work);
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("낙관적 락 충돌 - 재시도 {}/{}", attempt, maxAttempts);
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    /** attempt 번째 실패 후 대기 시간 - 0 ~ min(상한, 초기값 * 2^(attempt-1)) */
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    //스프링 예외 변환을 거치면 OptimisticLockingFailureException, 직접 flush 하면 OptimisticLockException
+    static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("재시도 대기 중 인터럽트", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * datasource.replica.*
+ * 계정, 드라이버는 spring.datasource 와 같은 것을 쓴다.
+ * */
+@Getter @Setter
+@ConfigurationProperties(prefix = "datasource.replica")
+public class ReplicaProperties {
+
+    private boolean enabled;
+    private List<String> urls = new ArrayList<>();
+    private String lagQuery;              // 예) MySQL 이면 seconds_behind 를 구하는 쿼리
+    private long maxLagSeconds = 5;
+    private long checkIntervalSeconds = 5;
+}
@@ -0,0 +1,124 @@
+package study.datajpa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 나머지는 primary 로 보낸다.
+ * SimpleJpaRepository 의 조회 메서드는 기본이 @Transactional(readOnly = true) 라서 replica 로 간다.
+ * 선언한 쿼리 메서드(@Query, 메서드 이름 쿼리)는 기본 트랜잭션이 없어서 리포지토리 인터페이스에 readOnly 를 붙여야 한다. (MemberRepository)
+ * 트랜잭션 시작 후에 커넥션을 얻어야 readOnly 를 알 수 있어서 LazyConnectionDataSourceProxy 로 감싸서 써야한다.
+ *
+ * checkReplicas() 로 replica 상태를 확인해서 lag 이 크거나 죽은 replica 는 빼고, 남은게 없으면 primary 로 보낸다.
+ * close() 하면 넘겨받은 커넥션 풀(primary, replica)을 닫는다.
+ * */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final DataSource primary;
+
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;     // replica 가 몇초 뒤쳐졌는지 반환하는 쿼리, 없으면 살아있는지만 본다.
+    private final long maxLagSeconds;
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    String lagQuery, long maxLagSeconds) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        this.healthyReplicas = new ArrayList<>(this.replicas.keySet());
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY;  //쓸 수 있는 replica 가 없으면 primary 로
+        }
+        return healthy.get(Math.floorMod(counter.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * replica 마다 lag 을 확인해서 쓸 수 있는 replica 목록을 갱신한다. (주기적으로 호출)
+     * */
+    public void checkReplicas() {
+        List<String> healthy = new ArrayList<>();
+        for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+            long lag = lagSeconds(entry.getValue());
+            if (lag >= 0 && lag <= maxLagSeconds) {
+                healthy.add(entry.getKey());
+            } else {
+                log.warn("replica 제외 name={} lag={}", entry.getKey(), lag);
+            }
+        }
+        healthyReplicas = Collections.unmodifiableList(healthy);
+    }
+
+    //@Bean 이면 컨텍스트 종료때 호출된다.
+    @Override
+    public void close() {
+        List<DataSource> dataSources = new ArrayList<>(replicas.values());
+        dataSources.add(primary);
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (IOException e) {
+                    log.warn("데이터소스 종료 실패 {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    //-1 이면 연결 실패 또는 지연을 모름 (결과가 없거나 NULL) - primary 로 읽는다.
+    private long lagSeconds(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (lagQuery == null || lagQuery.isEmpty()) {
+                return connection.isValid(1) ? 0 : -1;
+            }
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                long lag = rs.getLong(1);
+                return rs.wasNull() ? -1 : lag;
+            }
+        } catch (Exception e) {
+            log.warn("replica 확인 실패 {}", e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 낙관적 락 재시도 - findLockByUsername(비관적 락) 대신 @Version + 재시도
+ * */
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    public OptimisticRetryExecutor optimisticRetryExecutor(
+            PlatformTransactionManager transactionManager,
+            @Value("${retry.optimistic.max-attempts:10}") int maxAttempts,
+            @Value("${retry.optimistic.initial-backoff-ms:2}") long initialBackoffMillis,
+            @Value("${retry.optimistic.max-backoff-ms:100}") long maxBackoffMillis) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);  //시도마다 새 트랜잭션
+        return new OptimisticRetryExecutor(template, maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+}
@@ -0,0 +1,77 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * datasource.replica.enabled=true 일때만 읽기/쓰기 라우팅 데이터소스를 등록한다.
+ *
+ * datasource:
+ *   replica:
+ *     enabled: true
+ *     urls:
+ *       - jdbc:h2:tcp://localhost/~/datajpa-replica
+ * */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class RoutingDataSourceConfig {
+
+    //destroyMethod 기본값(inferred)으로 close() - 여기서 만든 HikariDataSource 들을 닫는다.
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             ReplicaProperties replicaProperties) {
+        DataSource primary = createDataSource(properties, properties.determineUrl(), "primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.getUrls().size(); i++) {
+            String name = "replica" + i;
+            replicas.put(name, createDataSource(properties, replicaProperties.getUrls().get(i), name));
+        }
+        return new ReplicaRoutingDataSource(primary, replicas,
+                replicaProperties.getLagQuery(), replicaProperties.getMaxLagSeconds());
+    }
+
+    @Primary
+    @Bean
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        //트랜잭션이 readOnly 로 시작된 다음에 실제 커넥션을 얻도록
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService replicaCheckExecutor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                         ReplicaProperties replicaProperties) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = replicaProperties.getCheckIntervalSeconds();
+        //처음 확인은 바로 - 죽은 replica 가 첫 interval 동안 요청을 받지 않게
+        executor.scheduleWithFixedDelay(replicaRoutingDataSource::checkReplicas, 0, interval, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    private static DataSource createDataSource(DataSourceProperties properties, String url, String poolName) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
@@ -1,24 +1,55 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.dto.CursorResult;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.CountMode;
 import study.datajpa.repository.MemberRepository;
 
-import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${member.init.enabled:true}")
+    private boolean initEnabled;
+
+    //쿼리 캐시가 꺼져 있으면 CACHED 도 매번 count 한다.
+    @Value("${cache.enabled:false}")
+    private boolean cacheEnabled;
 
     @GetMapping("/member2/{id}")
     public String findMember(@PathVariable("id")Member member){
@@ -29,20 +60,129 @@ public class MemberController {
         //PagingAndSortingRepository 제공
         PageRequest.of(1,2);
 
-        Page<MemberDto> map = memberRepository.findAll(pageable)
-                //.map(member -> new MemberDto(member));
-                .map(MemberDto::new);
-
+        //엔티티를 만들지 않고 JDBC 에서 바로 DTO 로, count 는 쿼리 캐시가 켜져 있으면 캐시에서
+        Page<MemberDto> map;
+        try {
+            map = memberRepository.findMemberDtoPage(pageable, cacheEnabled ? CountMode.CACHED : CountMode.EXACT);
+        } catch (InvalidDataAccessApiUsageException e) {
+            //허용하지 않는 sort 속성 (리포지토리의 IllegalArgumentException 을 스프링이 바꿔서 던진다.)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMostSpecificCause().getMessage(), e);
+        }
+        //memberRepository.findAll(pageable).map(MemberDto::new) 는 엔티티를 다 만들고 버린다.
+        //엔티티가 필요하면 findAll(pageable, FetchPlan.NONE) - 안쓰는 팀은 join 하지 않는다.
 
         return map;
     }
 
-    @PostConstruct
-    public void init() {
-        for (int i = 0; i < 100; i++) {
-            memberRepository.save(new Member("user"+i, i));
+    /**
+     * 비동기 버전 - 서블릿 쓰레드는 바로 반납하고 DB 조회는 repositoryExecutor 에서
+     * */
+    @GetMapping("/member/async")
+    public CompletableFuture<Page<MemberDto>> listAsync(@PageableDefault(size = 5) Pageable pageable) {
+        return memberRepository.findAsyncBy(pageable)
+                .thenApply(page -> page.map(MemberDto::new));
+    }
+
+    @GetMapping("/member3/{id}")
+    public CompletableFuture<String> findMemberAsync(@PathVariable("id") Long id) {
+        return memberRepository.findAsyncById(id)
+                .thenApply(member -> member == null ? null : member.getUsername());
+    }
+
+    //대기열이 꽉 차면 쌓아두지 않고 바로 503
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String rejected(RejectedExecutionException e) {
+        return e.getMessage();
+    }
+
+    private static final int MAX_CURSOR_SIZE = 2000;  // max-page-size 와 맞춘다.
+
+    /**
+     * 키셋 페이징 - count 쿼리 없이 다음 커서만 내려준다.
+     * /member/cursor?size=5&cursor=...
+     * */
+    @GetMapping("/member/cursor")
+    public CursorResult<MemberDto> listByCursor(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "size", defaultValue = "5") int size) {
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_SIZE));
+
+        Long lastId;
+        try {
+            lastId = CursorResult.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            //클라이언트가 준 값이 깨진 것 - 500 이 아니라 400
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        //하나 더 가져와서 다음 페이지가 있는지 본다.
+        List<Member> members = memberRepository.findMemberByCursor(lastId, limit + 1);
+        boolean hasNext = members.size() > limit;
+        if (hasNext) {
+            members = members.subList(0, limit);
+        }
+
+        List<MemberDto> content = members.stream()
+                .map(MemberDto::new)
+                .collect(Collectors.toList());
+        String nextCursor = hasNext ? CursorResult.encode(members.get(limit - 1).getId()) : null;
+
+        return new CursorResult<>(content, nextCursor);
+    }
 
+    /**
+     * 전체 회원 내보내기 - 한 줄씩 읽어서 바로 응답에 쓴다.
+     * /member/export (NDJSON), /member/export?format=csv
+     * 스트림은 트랜잭션 안에서만 읽을 수 있어서 readOnly 트랜잭션을 건다.
+     * */
+    @Transactional(readOnly = true)
+    @GetMapping("/member/export")
+    public void export(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+
+        Writer writer = response.getWriter();
+        if (csv) {
+            writer.write("id,username,teamName\n");
+        }
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto()) {
+            Iterator<MemberDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                MemberDto dto = iterator.next();
+                writer.write(csv ? toCsv(dto) : objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
         }
+        writer.flush();
+    }
 
+    private static String toCsv(MemberDto dto) {
+        return dto.getId() + "," + csvValue(dto.getUsername()) + "," + csvValue(dto.getTeamName());
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * 기동이 끝난 다음 백그라운드에서 batch insert - 기동 시간에 포함되지 않는다.
+     * member.init.enabled=false 면 안넣는다.
+     * */
+    @Async("applicationTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!initEnabled) {
+            return;
+        }
+        memberRepository.saveAllBatched(IntStream.range(0, 100)
+                .mapToObj(i -> new Member("user" + i, i)));
     }
 }
@@ -0,0 +1,44 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.readmodel.MemberColumns;
+import study.datajpa.readmodel.MemberColumnsLoader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 대시보드용 회원 통계 - 메모리 스냅샷(MemberColumns)에서 집계
+ * readmodel.member.enabled=false 면 404
+ * */
+@RestController
+@RequiredArgsConstructor
+public class MemberStatsController {
+
+    static final int MIN_BUCKET = 5;  //구간 수 = 최대 나이 / bucket + 1, 팀마다 long 배열을 만든다.
+
+    private final ObjectProvider<MemberColumns> memberColumns;
+    private final ObjectProvider<MemberColumnsLoader> memberColumnsLoader;
+
+    @GetMapping("/member/stats")
+    public Map<String, Object> stats(@RequestParam(value = "bucket", defaultValue = "10") int bucket) {
+        MemberColumns columns = memberColumns.getIfAvailable();
+        if (columns == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "readmodel.member.enabled=false");
+        }
+        memberColumnsLoader.ifAvailable(MemberColumnsLoader::rebuildIfStale);  //bulk update 뒤
+        bucket = Math.max(bucket, MIN_BUCKET);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", columns.size());
+        result.put("averageAge", columns.averageAge());
+        result.put("bucket", bucket);
+        result.put("teamAgeBuckets", columns.countByTeamAndAgeBucket(bucket));
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.metrics.RepositoryMetrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 리포지토리 메서드별 호출 수, 지연시간, row/SQL/엔티티 수 (전체 시간 큰 순서)
+ * */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final RepositoryMetrics repositoryMetrics;
+
+    @GetMapping("/metrics/repository")
+    public List<Map<String, Object>> repository() {
+        return repositoryMetrics.snapshot();
+    }
+}
@@ -0,0 +1,43 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 키셋(seek) 페이징 결과
+ * total count 없이 다음 페이지를 조회할 커서만 내려준다.
+ * */
+@Getter
+public class CursorResult<T> {
+
+    private final List<T> content;
+    private final String nextCursor;   // 마지막 페이지면 null
+    private final boolean hasNext;
+
+    public CursorResult(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+
+    //커서는 클라이언트 입장에서 불투명(opaque)하게 - 마지막 member_id 를 인코딩
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Long.valueOf(decoded);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 커서 입니다. cursor=" + cursor, e);
+        }
+    }
+}
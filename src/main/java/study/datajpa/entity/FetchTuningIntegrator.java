@@ -0,0 +1,59 @@
+package study.datajpa.entity;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * Team.members, Member.team 프록시 로딩 방식을 엔티티에 박지 않고 설정으로 바꾼다.
+ * 세션 팩토리가 persister 를 만들기 전에 매핑 정보를 고친다.
+ *
+ * spring.jpa.properties.datajpa.fetch.team_members: batch     # batch(기본) | subselect
+ * spring.jpa.properties.datajpa.fetch.team_members.batch_size: 100
+ * spring.jpa.properties.datajpa.fetch.team.batch_size: 100    # Member.team 프록시
+ *
+ * batch_size 가 없으면 hibernate.default_batch_fetch_size 를 따른다.
+ * subselect 는 처음 조회한 팀 목록 쿼리를 서브쿼리로 넣어서 멤버를 한번에 가져온다. (팀 수에 상관없이 1번)
+ * */
+public class FetchTuningIntegrator implements Integrator {
+
+    public static final String TEAM_MEMBERS_MODE = "datajpa.fetch.team_members";
+    public static final String TEAM_MEMBERS_BATCH_SIZE = "datajpa.fetch.team_members.batch_size";
+    public static final String TEAM_BATCH_SIZE = "datajpa.fetch.team.batch_size";
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+
+        Collection members = metadata.getCollectionBinding(Team.class.getName() + ".members");
+        String mode = ConfigurationHelper.getString(TEAM_MEMBERS_MODE, settings, "batch");
+        if ("subselect".equalsIgnoreCase(mode)) {
+            members.setSubselectLoadable(true);
+            members.getOwner().setSubselectLoadableCollections(true);
+        } else if (!"batch".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException(TEAM_MEMBERS_MODE + " 는 batch, subselect 중 하나여야 합니다. " + mode);
+        }
+        int membersBatchSize = ConfigurationHelper.getInt(TEAM_MEMBERS_BATCH_SIZE, settings, -1);
+        if (membersBatchSize > 0) {
+            members.setBatchSize(membersBatchSize);
+        }
+
+        PersistentClass team = metadata.getEntityBinding(Team.class.getName());
+        int teamBatchSize = ConfigurationHelper.getInt(TEAM_BATCH_SIZE, settings, -1);
+        if (teamBatchSize > 0) {
+            team.setBatchSize(teamBatchSize);
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
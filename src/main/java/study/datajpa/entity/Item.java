@@ -6,10 +6,11 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.entity.id.TimeOrderedId;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
-import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import java.time.LocalDateTime;
 
@@ -18,10 +19,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Item implements Persistable<String> {
 
-    @Id
+    @Id  //할당 id - @GeneratedValue 를 붙이면 id 가 있는 새 엔티티를 persist 할때 detached 로 본다.
     private String id;
 
+    @Getter
     @CreatedDate
+    @Column(updatable = false)
     private LocalDateTime createDate;
 
     @Override
@@ -35,6 +38,8 @@ public class Item implements Persistable<String> {
         return createDate == null;
     }
 
-    public Item(String a) {
+    //id 를 안주면 DB 호출 없이 시간순 id 를 만든다.
+    public Item(String id) {
+        this.id = id != null ? id : TimeOrderedId.next();
     }
 }
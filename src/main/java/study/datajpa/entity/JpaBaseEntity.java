@@ -1,6 +1,7 @@
 package study.datajpa.entity;
 
 import lombok.Getter;
+import study.datajpa.entity.audit.AuditClock;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
@@ -24,7 +25,7 @@ public class JpaBaseEntity {
      * */
     @PrePersist // JPA 제공
     public void prePersist() {
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = AuditClock.now();  //flush, batch 안에서는 같은 시각 (AuditClock)
         //this.createDate = now; 디스 써도되고 안써도되고 영한쌤은 강조하고 싶을때 사용
         createDate = now;
         updateDate = now;
@@ -32,7 +33,7 @@ public class JpaBaseEntity {
 
     @PreUpdate
     public void preUpdate() {
-        updateDate = LocalDateTime.now();
+        updateDate = AuditClock.now();
     }
 
 
@@ -1,25 +1,40 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.datajpa.entity.id.PooledSequenceGenerator;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)  // bulk update 하면 하이버네이트가 영역을 통째로 비운다.
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","username", "age"})// 연관관계는 찍지않는게 좋다. 무한루프
 @NamedQuery(
         name="Member.findByUsername",
-        query="select m from Member m where m.username = :username"
+        query="select m from Member m where m.username = :username",
+        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true") //쿼리 캐시
 )
 //@NamedEntityGraph
 public class Member extends BaseEntity {
-    @Id @GeneratedValue
+    //시퀀스 한번 호출로 allocation size(기본 50) 만큼 가져온다. batch_size 와 맞추자
+    @Id @GeneratedValue(generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = "study.datajpa.entity.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = PooledSequenceGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    //낙관적 락 - 수정할때 where version = ? 로 확인, 다른 트랜잭션이 먼저 바꿨으면 OptimisticLockException
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -44,7 +59,7 @@ public class Member extends BaseEntity {
 
     public void changeTeam(Team team){
         this.team = team;
-        team.getMembers().add(this);
-        //team에도 세팅 해야
+        team.addMember(this);
+        //team에도 세팅 해야 - 컬렉션은 초기화하지 않는다.
     }
 }
@@ -1,25 +1,66 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import study.datajpa.entity.id.PooledSequenceGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable  //2차 캐시 - 거의 안바뀌는 데이터
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","name"})
 public class Team extends JpaBaseEntity {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "team_seq_generator")
+    @GenericGenerator(name = "team_seq_generator", strategy = "study.datajpa.entity.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = PooledSequenceGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @Version
+    private Long version;
+
+    //멤버 추가/제거로 팀 버전을 올리지 않는다. (팀 정보 수정과 충돌나지 않게)
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
+
+    /**
+     * members 를 초기화하지 않고 추가한다. (select 안나감)
+     * - 영속 상태에서 초기화 안된 컬렉션(mappedBy 라서 inverse bag)은 add 를 쌓아뒀다가 초기화될때 합친다.
+     * - 준영속이라 초기화할 수 없으면 건너뛴다. 저장은 연관관계 주인(Member.team)으로 된다.
+     * */
+    public void addMember(Member member) {
+        if (Hibernate.isInitialized(members) || isAttached(members)) {
+            members.add(member);
+        }
+        //건너뛴 경우 다음에 조회하면 DB 에서 같이 읽힌다.
+    }
+
+    //세션이 열려있고 그 세션이 관리하는 컬렉션이어야 add 를 쌓아둘 수 있다.
+    private static boolean isAttached(List<Member> members) {
+        if (!(members instanceof AbstractPersistentCollection)) {
+            return false;
+        }
+        AbstractPersistentCollection collection = (AbstractPersistentCollection) members;
+        SharedSessionContractImplementor session = collection.getSession();
+        return session != null && session.isOpen()
+                && session.getPersistenceContext().containsCollection(collection);
+    }
 }
@@ -0,0 +1,53 @@
+package study.datajpa.entity.audit;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+/**
+ * 생성/수정 시각을 찍을때 쓰는 시계 - JpaBaseEntity, 스프링 데이터 auditing(DateTimeProvider) 이 같이 쓴다.
+ * - 평소에는 CoarseClock (기본 1ms 단위로 캐시)
+ * - pin() 한 동안은 쓰레드에서 같은 시각 - flush 한번(FlushTimestampListener), saveAllBatched 의 batch 한번
+ *
+ * try (AuditClock.Pin pin = AuditClock.pin()) {
+ *     ... persist, flush ...
+ * }
+ * */
+public final class AuditClock {
+
+    public static final long DEFAULT_RESOLUTION_MILLIS = 1;
+
+    private static final ThreadLocal<LocalDateTime> PINNED = new ThreadLocal<>();
+    private static final Pin NOOP = () -> { };
+
+    private static volatile CoarseClock clock = new CoarseClock(Clock.systemDefaultZone(), DEFAULT_RESOLUTION_MILLIS);
+
+    private AuditClock() {
+    }
+
+    public static void configure(Clock source, long resolutionMillis) {
+        clock = new CoarseClock(source, resolutionMillis);
+    }
+
+    public static LocalDateTime now() {
+        LocalDateTime pinned = PINNED.get();
+        return pinned != null ? pinned : clock.now();
+    }
+
+    /**
+     * close 할때까지 now() 가 같은 값을 준다.
+     * 이미 고정돼 있으면 바깥 것을 그대로 쓰고 close 해도 풀지 않는다.
+     * */
+    public static Pin pin() {
+        if (PINNED.get() != null) {
+            return NOOP;
+        }
+        PINNED.set(clock.now());
+        return PINNED::remove;
+    }
+
+    @FunctionalInterface
+    public interface Pin extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.entity.audit;
+
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 등록자/수정자를 엔티티마다 구하지 않고 한번 구해서 재사용한다.
+ * - 웹 요청 안이면 요청 단위
+ * - 요청 밖이면 트랜잭션 단위 (배치, 테스트)
+ * - 둘 다 없으면 매번 구한다.
+ * */
+public class CachedAuditorAware implements AuditorAware<String> {
+
+    private static final String ATTRIBUTE = CachedAuditorAware.class.getName() + ".AUDITOR";
+
+    private final Supplier<String> resolver;
+
+    public CachedAuditorAware(Supplier<String> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Optional<String> getCurrentAuditor() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object cached = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (cached == null) {
+                cached = resolver.get();
+                attributes.setAttribute(ATTRIBUTE, cached, RequestAttributes.SCOPE_REQUEST);
+            }
+            return Optional.of((String) cached);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Object cached = TransactionSynchronizationManager.getResource(this);
+            if (cached == null) {
+                cached = resolver.get();
+                TransactionSynchronizationManager.bindResource(this, cached);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(CachedAuditorAware.this);
+                    }
+                });
+            }
+            return Optional.of((String) cached);
+        }
+        return Optional.ofNullable(resolver.get());
+    }
+}
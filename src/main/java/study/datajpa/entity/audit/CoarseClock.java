@@ -0,0 +1,51 @@
+package study.datajpa.entity.audit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * resolution 단위로 잘라서 LocalDateTime 을 재사용하는 시계
+ * LocalDateTime.now() 는 호출할때마다 Instant 를 만들고 타임존 오프셋을 계산한다.
+ * 여기서는 System.currentTimeMillis() 만 읽고 칸(slot)이 바뀔때만 새로 만든다.
+ * resolution 이 0 이면 캐시하지 않는다. (LocalDateTime.now 와 같음)
+ * */
+public final class CoarseClock {
+
+    private final Clock clock;
+    private final long resolutionMillis;
+    private volatile Tick tick = new Tick(Long.MIN_VALUE, null);
+
+    public CoarseClock(Clock clock, long resolutionMillis) {
+        if (resolutionMillis < 0) {
+            throw new IllegalArgumentException("resolutionMillis 는 0 이상이어야 합니다. " + resolutionMillis);
+        }
+        this.clock = clock;
+        this.resolutionMillis = resolutionMillis;
+    }
+
+    public LocalDateTime now() {
+        if (resolutionMillis == 0) {
+            return LocalDateTime.now(clock);
+        }
+        long millis = clock.millis();
+        long slot = millis - Math.floorMod(millis, resolutionMillis);
+        Tick current = tick;
+        if (current.slot != slot) {
+            //여러 쓰레드가 동시에 만들어도 같은 값이라 상관없다.
+            current = new Tick(slot, LocalDateTime.ofInstant(Instant.ofEpochMilli(slot), clock.getZone()));
+            tick = current;
+        }
+        return current.value;
+    }
+
+    private static final class Tick {
+        private final long slot;
+        private final LocalDateTime value;
+
+        private Tick(long slot, LocalDateTime value) {
+            this.slot = slot;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.entity.audit;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * flush 한번에 나가는 insert/update 는 같은 시각으로 찍는다.
+ * @PreUpdate(JpaBaseEntity, AuditingEntityListener) 가 flush 안에서 호출되니까 엔티티마다 시계를 읽지 않는다.
+ * 세션마다 새로 만들어진다. (hibernate.session.events.auto)
+ * */
+public class FlushTimestampListener extends BaseSessionEventListener {
+
+    private AuditClock.Pin pin;
+
+    @Override
+    public void flushStart() {
+        pin = AuditClock.pin();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        if (pin != null) {
+            pin.close();
+            pin = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package study.datajpa.entity.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 시퀀스를 한번 호출해서 allocation size 만큼 id 를 메모리에서 나눠준다. (pooled-lo)
+ * allocation size 는 엔티티마다 박지 않고 설정으로 바꿀 수 있다.
+ *
+ * spring.jpa.properties.datajpa.id.allocation_size: 50
+ *
+ * @GenericGenerator(name = "...", strategy = "study.datajpa.entity.id.PooledSequenceGenerator",
+ *         parameters = @Parameter(name = "sequence_name", value = "member_seq"))
+ * */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "datajpa.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                    .getSettings()
+                    .get(ALLOCATION_SIZE);
+            params.setProperty(INCREMENT_PARAM,
+                    allocationSize == null ? String.valueOf(DEFAULT_ALLOCATION_SIZE) : allocationSize.toString());
+        }
+        if (!params.containsKey(OPT_PARAM)) {
+            params.setProperty(OPT_PARAM, "pooled-lo");  //시퀀스 값이 블록의 시작 값
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.metrics;
+
+/**
+ * 쓰레드별 누적 카운터 - 실행된 SQL 수(StatementCountingDataSource), 로딩된 엔티티 수
+ * 리포지토리 메서드 전후 값의 차이로 메서드별 통계를 낸다. (객체 생성 없이 long 만 증가)
+ * */
+public final class ExecutionStats {
+
+    static final int STATEMENTS = 0;
+    static final int ENTITIES = 1;
+
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private ExecutionStats() {
+    }
+
+    public static void statementExecuted() {
+        COUNTERS.get()[STATEMENTS]++;
+    }
+
+    public static void entityLoaded() {
+        COUNTERS.get()[ENTITIES]++;
+    }
+
+    static long[] counters() {
+        return COUNTERS.get();
+    }
+}
@@ -0,0 +1,95 @@
+package study.datajpa.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 리포지토리 메서드 하나의 통계
+ * 지연시간은 2의 거듭제곱 마이크로초 구간으로 나눈 히스토그램 (구간 i = 2^(i-1) ~ 2^i us)
+ * */
+public class MethodStats {
+
+    private static final int BUCKETS = 32;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder entities = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    MethodStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void record(long nanos, long rowCount, long statementCount, long entityCount, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        totalNanos.add(nanos);
+        rows.add(rowCount);
+        statements.add(statementCount);
+        entities.add(entityCount);
+        histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    static int bucket(long micros) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    //구간 상한값이라 실제보다 최대 2배까지 크게 나온다.
+    public long percentileMicros(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    public Map<String, Object> snapshot() {
+        long callCount = calls.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("calls", callCount);
+        result.put("errors", errors.sum());
+        result.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()));
+        result.put("avgMicros", callCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()) / callCount);
+        result.put("p50Micros", percentileMicros(0.5));
+        result.put("p99Micros", percentileMicros(0.99));
+        result.put("rows", rows.sum());
+        result.put("statements", statements.sum());
+        result.put("entities", entities.sum());
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.metrics;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * 모든 리포지토리에 RepositoryMetricsInterceptor 를 붙인다.
+ * - 스프링 데이터 리포지토리 (MemberRepository, TeamRepository, ItemRepository) : 리포지토리 프록시에 추가
+ * - 직접 만든 @Repository (MemberJpaRepository, TeamJpaRepository) : 프록시로 감싼다.
+ * 결과는 /metrics/repository
+ * SQL 수는 dataSource 빈을 StatementCountingDataSource 로 감싸서 센다. (JdbcTemplate 포함)
+ * */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static RepositoryMetrics repositoryMetrics() {
+        return new RepositoryMetrics();
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(RepositoryMetrics repositoryMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                                    proxyFactory.addAdvice(new RepositoryMetricsInterceptor(
+                                            repositoryMetrics, information.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof Repository) {
+                    return bean;  //스프링 데이터 리포지토리는 위에서 처리
+                }
+                Class<?> targetClass = AopUtils.getTargetClass(bean);
+                if (AnnotationUtils.findAnnotation(targetClass, org.springframework.stereotype.Repository.class) == null) {
+                    return bean;
+                }
+                RepositoryMetricsInterceptor interceptor = new RepositoryMetricsInterceptor(repositoryMetrics, targetClass);
+                if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+                    ((Advised) bean).addAdvice(interceptor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                //@Primary dataSource 하나만 - 하이버네이트, JdbcTemplate 이 같이 쓴다.
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new StatementCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    //HibernateConfig 가 모아서 등록
+    @Bean
+    public EntityLoadCountIntegrator entityLoadCountIntegrator() {
+        return new EntityLoadCountIntegrator();
+    }
+}
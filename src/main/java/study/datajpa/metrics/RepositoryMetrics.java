@@ -0,0 +1,34 @@
+package study.datajpa.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 리포지토리 메서드별 통계 저장소 ("MemberRepository.findByUsername(String)" -> MethodStats)
+ * */
+public class RepositoryMetrics {
+
+    private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+
+    MethodStats register(String name) {
+        return stats.computeIfAbsent(name, MethodStats::new);
+    }
+
+    public MethodStats get(String name) {
+        return stats.get(name);
+    }
+
+    //전체 시간이 큰 순서 - 위에 있는게 먼저 볼 쿼리
+    public List<Map<String, Object>> snapshot() {
+        List<MethodStats> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparingLong(MethodStats::getTotalNanos).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (MethodStats methodStats : list) {
+            result.add(methodStats.snapshot());
+        }
+        return result;
+    }
+}
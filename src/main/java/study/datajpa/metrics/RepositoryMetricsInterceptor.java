@@ -0,0 +1,88 @@
+package study.datajpa.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * 리포지토리 하나에 붙어서 메서드마다 호출 수, 지연시간, 반환 row 수, SQL 수, 로딩 엔티티 수를 기록한다.
+ * 메서드 -> MethodStats 는 처음 한번만 만들고 이후엔 조회만 한다.
+ * 메서드가 끝난 뒤에 나가는 지연로딩은 포함되지 않는다.
+ * */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final RepositoryMetrics metrics;
+    private final String repositoryName;
+    private final Map<Method, MethodStats> stats = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsInterceptor(RepositoryMetrics metrics, Class<?> repositoryType) {
+        this.metrics = metrics;
+        this.repositoryName = repositoryType.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        MethodStats methodStats = stats.get(method);
+        if (methodStats == null) {
+            methodStats = stats.computeIfAbsent(method, m -> metrics.register(name(m)));
+        }
+
+        long[] counters = ExecutionStats.counters();
+        long statementsBefore = counters[ExecutionStats.STATEMENTS];
+        long entitiesBefore = counters[ExecutionStats.ENTITIES];
+        long start = System.nanoTime();
+        boolean failed = true;
+        long rows = 0;
+        try {
+            Object result = invocation.proceed();
+            rows = rows(result);
+            failed = false;
+            return result;
+        } finally {
+            methodStats.record(System.nanoTime() - start, rows,
+                    counters[ExecutionStats.STATEMENTS] - statementsBefore,
+                    counters[ExecutionStats.ENTITIES] - entitiesBefore,
+                    failed);
+        }
+    }
+
+    private String name(Method method) {
+        StringJoiner params = new StringJoiner(", ", "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            params.add(type.getSimpleName());
+        }
+        return repositoryName + "." + method.getName() + params;
+    }
+
+    static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {  //Page 포함
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Stream || result instanceof Future) {
+            return 0;  //아직 안읽은 결과는 셀 수 없다.
+        }
+        if (result instanceof Number || result instanceof Boolean) {
+            return 0;  //count, bulk update 결과 등
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.query;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * 리포지토리 프록시에 붙어서 "MemberRepository.findAll" 같은 호출자 이름을 남긴다.
+ * */
+public class QueryCallerInterceptor implements MethodInterceptor {
+
+    private final String repositoryName;
+
+    public QueryCallerInterceptor(Class<?> repositoryInterface) {
+        this.repositoryName = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (QueryCounter.current() != null) {
+            QueryCounter.markCaller(repositoryName + "." + invocation.getMethod().getName());
+        }
+        return invocation.proceed();
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.query;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 한 요청(또는 테스트 구간) 동안 실행된 SQL 통계
+ * 같은 모양의 select 가 여러번 나가면 N + 1 을 의심한다.
+ * */
+public class QueryCount {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Shape> shapes = new LinkedHashMap<>();
+    private int total;
+    private String caller;  //마지막으로 호출된 리포지토리 메서드
+
+    void record(String sql) {
+        total++;
+        String shape = normalize(sql);
+        shapes.computeIfAbsent(shape, key -> new Shape(key, caller)).count++;
+    }
+
+    String changeCaller(String caller) {
+        String previous = this.caller;
+        this.caller = caller;
+        return previous;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSelectCount() {
+        return shapes.values().stream()
+                .filter(Shape::isSelect)
+                .mapToInt(Shape::getCount)
+                .sum();
+    }
+
+    /**
+     * 같은 모양의 select 가 threshold 번 보다 많이 나간 것들
+     * */
+    public List<Shape> repeatedSelects(int threshold) {
+        List<Shape> result = new ArrayList<>();
+        for (Shape shape : shapes.values()) {
+            if (shape.isSelect() && shape.count > threshold) {
+                result.add(shape);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 테스트에서 쿼리 예산을 강제할때 사용 - 넘으면 예외
+     * */
+    public void assertRepeatedSelectsAtMost(int threshold) {
+        List<Shape> repeated = repeatedSelects(threshold);
+        if (!repeated.isEmpty()) {
+            throw new IllegalStateException("N + 1 의심 쿼리가 있습니다. threshold=" + threshold + ", " + repeated);
+        }
+    }
+
+    //공백을 정리하고 in (?, ?, ?) 는 in (?) 로 본다.
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+
+    @Getter
+    public static class Shape {
+        private final String sql;
+        private final String caller;
+        private int count;
+
+        Shape(String sql, String caller) {
+            this.sql = sql;
+            this.caller = caller;
+        }
+
+        public boolean isSelect() {
+            return sql.regionMatches(true, 0, "select", 0, 6);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + count + "회, caller=" + caller + "] " + sql;
+        }
+    }
+}
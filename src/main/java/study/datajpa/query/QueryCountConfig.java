@@ -0,0 +1,47 @@
+package study.datajpa.query;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * N + 1 감지 설정
+ * query.count.repeat-threshold : 같은 모양의 select 가 이 횟수를 넘으면 경고 (기본 10)
+ * */
+@Configuration
+public class QueryCountConfig implements WebMvcConfigurer {
+
+    @Value("${query.count.repeat-threshold:10}")
+    private int repeatThreshold;
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountInspectorCustomizer() {
+        return properties -> properties.put("hibernate.session_factory.statement_inspector", new QueryCountInspector());
+    }
+
+    //리포지토리 프록시마다 호출자 표시용 인터셉터를 붙인다.
+    @Bean
+    public static BeanPostProcessor queryCallerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                                    proxyFactory.addAdvice(new QueryCallerInterceptor(information.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(repeatThreshold));
+    }
+}
@@ -0,0 +1,16 @@
+package study.datajpa.query;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 하이버네이트가 SQL 을 만들때마다 호출된다. 카운트만 하고 SQL 은 그대로 돌려준다.
+ * (N + 1 감지용 QueryCounter - 메서드별 통계는 StatementCountingDataSource 가 JdbcTemplate 까지 센다.)
+ * */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.record(sql);
+        return sql;
+    }
+}
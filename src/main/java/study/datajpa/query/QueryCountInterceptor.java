@@ -0,0 +1,46 @@
+package study.datajpa.query;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * HTTP 요청 단위로 SQL 을 세고 같은 select 가 threshold 번 넘게 나가면 경고 로그를 남긴다.
+ * 비동기 요청(CompletableFuture 반환)은 서블릿 쓰레드가 먼저 반납되니까 거기서 카운터를 지운다.
+ * (풀 쓰레드에 남지 않게, 결과를 쓰는 async dispatch 에서 다시 preHandle/afterCompletion)
+ * */
+@Slf4j
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    private final int threshold;
+
+    public QueryCountInterceptor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCounter.start();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCounter.stop();  //afterCompletion 은 이 쓰레드에서 호출되지 않는다.
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryCount count = QueryCounter.stop();
+        if (count == null) {
+            return;
+        }
+        List<QueryCount.Shape> repeated = count.repeatedSelects(threshold);
+        if (!repeated.isEmpty()) {
+            log.warn("N + 1 의심 uri={} total={} repeated={}", request.getRequestURI(), count.getTotal(), repeated);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package study.datajpa.query;
+
+/**
+ * 쓰레드(요청) 단위 SQL 카운터
+ * start ~ stop 사이에 나간 SQL 만 센다. start 안하면 아무것도 안한다.
+ *
+ * QueryCounter.start();
+ * ... 리포지토리 호출, 지연로딩 ...
+ * QueryCount count = QueryCounter.stop();
+ * */
+public final class QueryCounter {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static QueryCount start() {
+        QueryCount count = new QueryCount();
+        CURRENT.set(count);
+        return count;
+    }
+
+    public static QueryCount current() {
+        return CURRENT.get();
+    }
+
+    public static QueryCount stop() {
+        QueryCount count = CURRENT.get();
+        CURRENT.remove();
+        return count;
+    }
+
+    static void record(String sql) {
+        QueryCount count = CURRENT.get();
+        if (count != null) {
+            count.record(sql);
+        }
+    }
+
+    /**
+     * 지금부터 나가는 SQL 을 어떤 리포지토리 메서드 때문인지 표시한다.
+     * 지연로딩은 메서드가 끝난 뒤에 나가므로 끝나도 되돌리지 않는다.
+     * */
+    static void markCaller(String caller) {
+        QueryCount count = CURRENT.get();
+        if (count != null) {
+            count.changeCaller(caller);
+        }
+    }
+}
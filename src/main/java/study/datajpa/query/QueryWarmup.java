@@ -0,0 +1,128 @@
+package study.datajpa.query;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기동 시점에 리포지토리 쿼리를 실행하지 않고 컴파일만 해둔다.
+ * JPQL 파싱, SQL 변환 결과가 하이버네이트 쿼리 플랜 캐시에 들어가서 첫 요청이 느리지 않다.
+ * - @NamedQuery : createNamedQuery
+ * - @Query(JPQL) : createQuery, Page 반환이면 count 쿼리도
+ * 실행하지 않으니까 테이블 크기와 상관없이 걸리는 시간이 일정하다.
+ * 메서드 이름 쿼리는 호출할때 Criteria 로 만들어져서 실행하지 않고는 미리 만들 수 없다. native 쿼리는 컴파일할게 없다.
+ * ApplicationRunner 라서 끝나야 애플리케이션이 ready 상태가 된다.
+ *
+ * query.warmup.enabled=false 로 끌 수 있다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "query.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryWarmup implements ApplicationRunner {
+
+    private final ApplicationContext applicationContext;
+    private final EntityManagerFactory emf;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<String, Long> elapsed = warmup();
+
+        long total = elapsed.values().stream().mapToLong(Long::longValue).sum();
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(elapsed.entrySet());
+        sorted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        log.info("쿼리 warmup {}개 {}ms", sorted.size(), TimeUnit.NANOSECONDS.toMillis(total));
+        for (Map.Entry<String, Long> entry : sorted) {
+            log.info("  {}us {}", TimeUnit.NANOSECONDS.toMicros(entry.getValue()), entry.getKey());
+        }
+    }
+
+    /**
+     * 쿼리 이름 -> 컴파일에 걸린 시간(나노초), 실패한 쿼리는 -1
+     * */
+    public Map<String, Long> warmup() {
+        Map<String, Long> elapsed = new LinkedHashMap<>();
+        EntityManager em = emf.createEntityManager();  //트랜잭션, 커넥션 필요 없음
+        try {
+            for (String name : namedQueries()) {
+                elapsed.put("@NamedQuery " + name, compile(name, () -> em.createNamedQuery(name)));
+            }
+
+            Repositories repositories = new Repositories(applicationContext);
+            for (Class<?> domainType : repositories) {
+                RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+                for (Method method : information.getQueryMethods()) {
+                    Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+                    if (query == null || query.nativeQuery() || query.value().contains("#{")) {
+                        continue;  //메서드 이름 쿼리, native, SpEL 은 호출할때
+                    }
+                    String name = information.getRepositoryInterface().getSimpleName() + "." + method.getName();
+                    elapsed.put(name, compile(name, () -> em.createQuery(query.value())));
+
+                    String countQuery = countQuery(method, query);
+                    if (countQuery != null) {
+                        String countName = name + " (count)";
+                        elapsed.put(countName, compile(countName, () -> em.createQuery(countQuery)));
+                    }
+                }
+            }
+        } finally {
+            em.close();
+        }
+        return elapsed;
+    }
+
+    private static long compile(String name, Runnable compile) {
+        long start = System.nanoTime();
+        try {
+            compile.run();
+            return System.nanoTime() - start;
+        } catch (Exception e) {
+            log.warn("쿼리 warmup 실패 {} {}", name, e.getMessage());
+            return -1L;
+        }
+    }
+
+    //Page 를 반환하면 스프링 데이터가 count 쿼리도 만든다. countQuery 가 없으면 같은 방법으로 만든다.
+    private static String countQuery(Method method, Query query) {
+        if (!Page.class.isAssignableFrom(method.getReturnType())) {
+            return null;
+        }
+        if (!query.countQuery().isEmpty()) {
+            return query.countQuery();
+        }
+        return QueryUtils.createCountQueryFor(query.value(), query.countProjection().isEmpty() ? null : query.countProjection());
+    }
+
+    private List<String> namedQueries() {
+        List<String> names = new ArrayList<>();
+        for (EntityType<?> entity : emf.getMetamodel().getEntities()) {
+            for (NamedQuery namedQuery : entity.getJavaType().getAnnotationsByType(NamedQuery.class)) {
+                names.add(namedQuery.name());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,288 @@
+package study.datajpa.readmodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Member 를 컬럼별 배열로 들고 있는 메모리 스냅샷 (통계/대시보드용)
+ * - age: int[], team_id: long[], username: 사전(dictionary) 코드 int[]
+ * - 집계는 객체 없이 배열만 순서대로 훑는다. (JIT 가 루프를 벡터화 할 수 있는 모양)
+ * - 쓰기(upsert/remove)는 드물고 작으니까 맵으로 행 위치를 찾는다. 삭제는 마지막 행을 빈자리로 옮긴다.
+ *
+ * rebuild 중에 들어온 변경은 모아뒀다가 새 스냅샷에 다시 적용한다. (upsert/remove 는 몇번 해도 결과가 같다)
+ * */
+public class MemberColumns {
+
+    public static final long NO_TEAM = -1L;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] usernameCodes = new int[INITIAL_CAPACITY];
+    private long[] teamIds = new long[INITIAL_CAPACITY];
+    private int[] teamCodes = new int[INITIAL_CAPACITY];  //집계할때 맵 조회 없이 배열 인덱스로 쓰려고
+    private int size;
+
+    private Map<Long, Integer> rowById = new HashMap<>();
+    private Dictionary<String> usernames = new Dictionary<>();
+    private Dictionary<Long> teams = new Dictionary<>();
+
+    private List<Consumer<MemberColumns>> pending;  //rebuild 중에 들어온 변경
+
+    public void upsert(long id, String username, int age, Long teamId) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (pending != null) {
+                pending.add(columns -> columns.upsertRow(id, username, age, teamId));
+            }
+            upsertRow(id, username, age, teamId);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public void remove(long id) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (pending != null) {
+                pending.add(columns -> columns.removeRow(id));
+            }
+            removeRow(id);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * 새로 읽어서 통째로 바꾼다. loader 는 넘겨받은 빈 MemberColumns 에 upsert 한다.
+     * 읽는 동안에도 조회는 이전 스냅샷으로 된다.
+     * */
+    public void rebuild(Consumer<MemberColumns> loader) {
+        List<Consumer<MemberColumns>> changes = new ArrayList<>();
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (pending != null) {
+                throw new IllegalStateException("이미 rebuild 중입니다.");
+            }
+            pending = changes;
+        } finally {
+            write.unlock();
+        }
+
+        MemberColumns fresh = new MemberColumns();
+        try {
+            loader.accept(fresh);
+        } catch (RuntimeException e) {
+            write.lock();
+            try {
+                pending = null;  //이전 스냅샷 유지
+            } finally {
+                write.unlock();
+            }
+            throw e;
+        }
+
+        write.lock();
+        try {
+            changes.forEach(change -> change.accept(fresh));
+            pending = null;
+            ids = fresh.ids;
+            ages = fresh.ages;
+            usernameCodes = fresh.usernameCodes;
+            teamIds = fresh.teamIds;
+            teamCodes = fresh.teamCodes;
+            size = fresh.size;
+            rowById = fresh.rowById;
+            usernames = fresh.usernames;
+            teams = fresh.teams;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public int size() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return size;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /** fromInclusive <= age < toExclusive */
+    public long countByAgeBetween(int fromInclusive, int toExclusive) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int[] ages = this.ages;
+            long count = 0;
+            for (int i = 0; i < size; i++) {
+                int age = ages[i];
+                count += (age >= fromInclusive && age < toExclusive) ? 1 : 0;
+            }
+            return count;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public double averageAge() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            if (size == 0) {
+                return 0;
+            }
+            int[] ages = this.ages;
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += ages[i];
+            }
+            return (double) sum / size;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /** 문자열 비교 없이 사전 코드(int)로 비교 */
+    public long countByUsername(String username) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int code = usernames.codeOf(username);
+            if (code < 0) {
+                return 0;
+            }
+            int[] codes = usernameCodes;
+            long count = 0;
+            for (int i = 0; i < size; i++) {
+                count += codes[i] == code ? 1 : 0;
+            }
+            return count;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * 팀별, 나이 구간별 회원 수 - team_id -> [0 ~ width-1 살, width ~ 2*width-1 살, ...]
+     * 팀이 없으면 NO_TEAM, 음수 나이는 첫 구간
+     * */
+    public Map<Long, long[]> countByTeamAndAgeBucket(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("bucketWidth 는 1 이상이어야 합니다. " + bucketWidth);
+        }
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int[] ages = this.ages;
+            int[] teamCodes = this.teamCodes;
+            int maxAge = 0;
+            for (int i = 0; i < size; i++) {
+                maxAge = Math.max(maxAge, ages[i]);
+            }
+            int buckets = maxAge / bucketWidth + 1;
+            long[] counts = new long[teams.size() * buckets];
+            for (int i = 0; i < size; i++) {
+                int bucket = Math.max(ages[i], 0) / bucketWidth;
+                counts[teamCodes[i] * buckets + bucket]++;
+            }
+
+            Map<Long, long[]> result = new LinkedHashMap<>();
+            for (int code = 0; code < teams.size(); code++) {
+                long[] row = Arrays.copyOfRange(counts, code * buckets, (code + 1) * buckets);
+                if (Arrays.stream(row).anyMatch(count -> count > 0)) {
+                    result.put(teams.valueOf(code), row);
+                }
+            }
+            return result;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    private void upsertRow(long id, String username, int age, Long teamId) {
+        Integer row = rowById.get(id);
+        if (row == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(id, row);
+            ids[row] = id;
+        }
+        long team = teamId == null ? NO_TEAM : teamId;
+        ages[row] = age;
+        usernameCodes[row] = usernames.encode(username);
+        teamIds[row] = team;
+        teamCodes[row] = teams.encode(team);
+    }
+
+    private void removeRow(long id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            ages[row] = ages[last];
+            usernameCodes[row] = usernameCodes[last];
+            teamIds[row] = teamIds[last];
+            teamCodes[row] = teamCodes[last];
+            rowById.put(ids[row], row);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        ages = Arrays.copyOf(ages, newCapacity);
+        usernameCodes = Arrays.copyOf(usernameCodes, newCapacity);
+        teamIds = Arrays.copyOf(teamIds, newCapacity);
+        teamCodes = Arrays.copyOf(teamCodes, newCapacity);
+    }
+
+    //값 -> 0 부터 붙인 코드. 지워진 값도 rebuild 전까지는 남는다.
+    private static final class Dictionary<T> {
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int encode(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int codeOf(T value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        T valueOf(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
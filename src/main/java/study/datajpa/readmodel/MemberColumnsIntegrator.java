@@ -0,0 +1,34 @@
+package study.datajpa.readmodel;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * 커밋 후 이벤트(POST_COMMIT_*)에 MemberColumnsListener 등록 - HibernateConfig 가 모아서 등록
+ * */
+public class MemberColumnsIntegrator implements Integrator {
+
+    private final MemberColumns columns;
+
+    public MemberColumnsIntegrator(MemberColumns columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        MemberColumnsListener listener = new MemberColumnsListener(columns);
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
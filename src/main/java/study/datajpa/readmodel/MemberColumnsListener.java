@@ -0,0 +1,68 @@
+package study.datajpa.readmodel;
+
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import study.datajpa.entity.Member;
+
+/**
+ * 커밋된 Member 변경만 MemberColumns 에 반영한다. (롤백된 변경은 안들어온다)
+ * JPQL/native bulk update 는 엔티티 이벤트가 없어서 반영되지 않는다. - MemberColumnsLoader.rebuild()
+ * */
+public class MemberColumnsListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final MemberColumns columns;
+
+    public MemberColumnsListener(MemberColumns columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            upsert((Member) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            upsert((Member) event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            columns.remove((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return persister.getMappedClass() == Member.class;
+    }
+
+    //team 은 프록시여도 id 만 꺼내니까 초기화하지 않는다.
+    private void upsert(Member member) {
+        columns.upsert(member.getId(), member.getUsername(), member.getAge(),
+                member.getTeam() == null ? null : member.getTeam().getId());
+    }
+}
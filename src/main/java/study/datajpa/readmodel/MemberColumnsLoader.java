@@ -0,0 +1,80 @@
+package study.datajpa.readmodel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.datajpa.repository.MemberBulkUpdatedEvent;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * member 테이블을 한번 훑어서 MemberColumns 를 채운다. 기동이 끝난 다음 백그라운드에서
+ * 엔티티를 만들지 않고 JDBC 로 한줄씩 (fetch size 만큼씩 받아온다)
+ *
+ * bulk update 는 엔티티 이벤트가 없다. 커밋되면 stale 표시만 하고, 다음 조회(rebuildIfStale)때 다시 읽는다.
+ * */
+@Slf4j
+public class MemberColumnsLoader {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final MemberColumns columns;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    public MemberColumnsLoader(MemberColumns columns, DataSource dataSource) {
+        this.columns = columns;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    @Async("applicationTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    //트랜잭션 밖에서 발행하면 바로 (청크 bulk)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkUpdated(MemberBulkUpdatedEvent event) {
+        log.info("MemberColumns stale - {} {}건", event.getSource(), event.getCount());
+        stale.set(true);
+    }
+
+    public boolean isStale() {
+        return stale.get();
+    }
+
+    /** bulk update 가 커밋된 뒤라면 다시 읽는다. 다른 스레드가 읽는 중이면 끝날때까지 기다린다. */
+    public void rebuildIfStale() {
+        if (stale.get()) {
+            synchronized (this) {
+                if (stale.get()) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    //한번에 하나만 - 기동시 load 와 rebuildIfStale 이 겹칠 수 있다.
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        stale.set(false);  //읽기 전에 내린다. 읽는 동안 커밋된 bulk 는 다시 stale 로 표시된다.
+        try {
+            columns.rebuild(fresh -> jdbcTemplate.query(
+                    "select member_id, username, age, team_id from member",
+                    rs -> {
+                        long teamId = rs.getLong(4);
+                        fresh.upsert(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.wasNull() ? null : teamId);
+                    }));
+        } catch (RuntimeException e) {
+            stale.set(true);
+            throw e;
+        }
+        log.info("MemberColumns rebuild - {}건, {}ms", columns.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
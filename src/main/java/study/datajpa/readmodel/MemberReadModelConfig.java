@@ -0,0 +1,32 @@
+package study.datajpa.readmodel;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Member 통계용 메모리 스냅샷 - readmodel.member.enabled=true 일때만
+ * 통계 쿼리(팀별, 나이대별 회원 수)를 DB 대신 메모리 배열에서 집계한다. (/member/stats)
+ * */
+@Configuration
+@ConditionalOnProperty(name = "readmodel.member.enabled", havingValue = "true")
+public class MemberReadModelConfig {
+
+    @Bean
+    public MemberColumns memberColumns() {
+        return new MemberColumns();
+    }
+
+    //DataSource/EntityManagerFactory 를 의존하지 않아야 한다. (EntityManagerFactory 만들때 필요)
+    @Bean
+    public MemberColumnsIntegrator memberColumnsIntegrator(MemberColumns memberColumns) {
+        return new MemberColumnsIntegrator(memberColumns);
+    }
+
+    @Bean
+    public MemberColumnsLoader memberColumnsLoader(MemberColumns memberColumns, DataSource dataSource) {
+        return new MemberColumnsLoader(memberColumns, dataSource);
+    }
+}
@@ -0,0 +1,13 @@
+package study.datajpa.repository;
+
+/**
+ * 페이징할때 전체 카운트를 어떻게 구할지
+ * 첫 페이지가 pageSize 보다 적게 나오면 어떤 모드든 count 쿼리를 생략한다.
+ * */
+public enum CountMode {
+    EXACT,      // 매번 count 쿼리
+    CACHED,     // count 결과를 쿼리 캐시에 잠깐 보관 - member 테이블에 쓰기가 있으면 무효화
+                // 쿼리 캐시(cache.enabled=true)가 꺼져 있으면 EXACT 와 같다.
+    ESTIMATED   // DB 통계의 추정치 - H2 만 (information_schema.tables.row_count_estimate), 다른 DB 는 EXACT 로 센다.
+                // 조건이 없는 전체 조회만, 조건이 있는 조회에 넘기면 IllegalArgumentException
+}
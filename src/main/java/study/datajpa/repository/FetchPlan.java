@@ -0,0 +1,128 @@
+package study.datajpa.repository;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 호출할때 정하는 fetch join 대상 - @EntityGraph(attributePaths = ...) 를 실행 시점에
+ * 화면마다 필요한 연관관계만 같이 가져온다.
+ *
+ * memberRepository.findAll(pageable, FetchPlan.NONE);              //팀 안씀 - join 없음
+ * memberRepository.findAll(pageable, FetchPlan.of("team"));        //팀 이름까지
+ * memberRepository.findByUsername("a", FetchPlan.of("team.members"));
+ * */
+public final class FetchPlan {
+
+    public static final FetchPlan NONE = new FetchPlan(Collections.emptySet());
+
+    private final Set<String> attributePaths;
+
+    private FetchPlan(Set<String> attributePaths) {
+        this.attributePaths = attributePaths;
+    }
+
+    public static FetchPlan of(String... attributePaths) {
+        if (attributePaths.length == 0) {
+            return NONE;
+        }
+        return new FetchPlan(Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(attributePaths))));
+    }
+
+    public Set<String> getAttributePaths() {
+        return attributePaths;
+    }
+
+    public boolean isEmpty() {
+        return attributePaths.isEmpty();
+    }
+
+    /**
+     * 컬렉션(ToMany) 을 같이 가져오는지 - 페이징하면 DB 가 아니라 메모리에서 자르게 된다.
+     * 경로가 잘못됐으면 IllegalArgumentException
+     * */
+    public boolean fetchesCollection(EntityManager em, Class<?> rootType) {
+        for (String path : attributePaths) {
+            ManagedType<?> type = em.getMetamodel().managedType(rootType);
+            for (String name : path.split("\\.")) {
+                Attribute<?, ?> attribute = type.getAttribute(name);
+                if (attribute.isCollection()) {
+                    return true;
+                }
+                if (!attribute.isAssociation()) {
+                    break;
+                }
+                type = em.getMetamodel().managedType(((SingularAttribute<?, ?>) attribute).getJavaType());
+            }
+        }
+        return false;
+    }
+
+    /** "team.members" 같은 경로를 subgraph 로 - "team", "team.members" 처럼 겹치면 한번만 만든다. */
+    public <T> EntityGraph<T> toEntityGraph(EntityManager em, Class<T> rootType) {
+        EntityGraph<T> graph = em.createEntityGraph(rootType);
+        Map<String, Set<String>> children = groupByFirst(attributePaths);
+        children.forEach((name, rest) -> {
+            if (rest.isEmpty()) {
+                graph.addAttributeNodes(name);
+            } else {
+                addSubgraph(graph.addSubgraph(name), rest);
+            }
+        });
+        return graph;
+    }
+
+    private static void addSubgraph(Subgraph<?> subgraph, Set<String> paths) {
+        groupByFirst(paths).forEach((name, rest) -> {
+            if (rest.isEmpty()) {
+                subgraph.addAttributeNodes(name);
+            } else {
+                addSubgraph(subgraph.addSubgraph(name), rest);
+            }
+        });
+    }
+
+    // {"team", "team.members"} -> {team=[members]}
+    private static Map<String, Set<String>> groupByFirst(Set<String> paths) {
+        Map<String, Set<String>> groups = new LinkedHashMap<>();
+        for (String path : paths) {
+            int dot = path.indexOf('.');
+            String first = dot < 0 ? path : path.substring(0, dot);
+            Set<String> rest = groups.computeIfAbsent(first, key -> new LinkedHashSet<>());
+            if (dot >= 0) {
+                rest.add(path.substring(dot + 1));
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FetchPlan)) {
+            return false;
+        }
+        return attributePaths.equals(((FetchPlan) o).attributePaths);
+    }
+
+    @Override
+    public int hashCode() {
+        return attributePaths.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPlan" + attributePaths;
+    }
+}
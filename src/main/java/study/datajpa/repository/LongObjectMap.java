@@ -0,0 +1,98 @@
+package study.datajpa.repository;
+
+/**
+ * long 키 전용 해시맵 (open addressing, 선형 탐사)
+ * HashMap<Long, V> 처럼 키를 Long 으로 박싱하거나 Entry 객체를 만들지 않는다.
+ * 넣기/조회만 된다. (삭제 없음)
+ * */
+final class LongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;  //null 이면 빈칸
+    private int size;
+    private int resizeAt;
+
+    LongObjectMap() {
+        this(16);
+    }
+
+    LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /** 이미 있으면 기존 값을 돌려주고 바꾸지 않는다. 없으면 넣고 null */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null 값은 넣을 수 없습니다.");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash();
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    //연속된 시퀀스 id 가 한쪽에 몰리지 않게 섞는다. (murmur3 finalizer)
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectMap(size=" + size + ", capacity=" + keys.length + ")";
+    }
+}
@@ -0,0 +1,19 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+/**
+ * 엔티티 이벤트 없이 member 테이블을 바꾼 뒤에 발행 (JPQL bulk update)
+ * 트랜잭션 안에서 발행하면 받는 쪽은 커밋 후에 (@TransactionalEventListener)
+ * */
+@Getter
+public class MemberBulkUpdatedEvent {
+
+    private final String source;  //어디서 바꿨는지 - 로그용
+    private final long count;
+
+    public MemberBulkUpdatedEvent(String source, long count) {
+        this.source = source;
+        this.count = count;
+    }
+}
@@ -1,10 +1,14 @@
 package study.datajpa.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import study.datajpa.batch.ChunkedBulkUpdater;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,12 @@ public class MemberJpaRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private ChunkedBulkUpdater chunkedBulkUpdater;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public Member save(Member member) {
         em.persist(member);
 
@@ -72,10 +82,26 @@ public class MemberJpaRepository {
     }
 
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1" +
+        int count = em.createQuery("update Member m set m.age = m.age + 1, m.version = m.version + 1" +
                         " where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
+        eventPublisher.publishEvent(new MemberBulkUpdatedEvent("MemberJpaRepository.bulkAgePlus", count));
+        return count;
+    }
+
+    //청크(member_id 구간)마다 커밋, 실패하면 다시 호출해서 이어서 한다. 트랜잭션 밖에서 호출
+    public long bulkAgePlusChunked(int age) {
+        long count = 0;
+        try {
+            count = chunkedBulkUpdater.execute("MemberJpaRepository.bulkAgePlus(age=" + age + ")",
+                    "update Member m set m.age = m.age + 1, m.version = m.version + 1" +
+                            " where m.age >= :age and m.id >= :from and m.id < :to",
+                    Collections.singletonMap("age", age));
+            return count;
+        } finally {
+            eventPublisher.publishEvent(new MemberBulkUpdatedEvent("MemberJpaRepository.bulkAgePlusChunked", count));
+        }
     }
 
 }
\ No newline at end of file
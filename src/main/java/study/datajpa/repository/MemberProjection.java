@@ -1,5 +1,8 @@
 package study.datajpa.repository;
 
+import study.datajpa.processor.GenerateProjection;
+
+@GenerateProjection  //MemberProjectionDto 생성
 public interface MemberProjection {
 
     Long getId();
@@ -5,6 +5,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
@@ -12,7 +15,10 @@ import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+//선언한 쿼리 메서드는 기본 트랜잭션이 없다. 조회는 readOnly (replica 라우팅, flush 생략), 쓰기 메서드는 따로 @Transactional
+@Transactional(readOnly = true)
 //id 타입                                                               // 다른클래스에서 2개를 상속받는다.
 public interface MemberRepository extends JpaRepository<Member, Long> , MemberRepositoryCustom {
 
@@ -20,6 +26,7 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
 
     //@Query(name = "Member.findByUsername")
     //없어도 동작한다. 관례가있다. namedQuery를 먼저 찾는다. 그다음에 메서드쿼리 찾는다. 없어도 된다.
+    @QueryHints(value = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Member> findByUsername(@Param("username") String username);
     //@Param 명확하게 JPQL이 있을때 작성한다.
 
@@ -47,15 +54,12 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
             countQuery = "select count(m) from Member m")
     Slice<Member> findSliceByAge(int age, Pageable pageable);
 
-    @Modifying(clearAutomatically = true)
-    @Query("update Member m set m.age = m.age +1 where m.age >= :age")
-    int bulkAgePlus(@Param("age") int age);
-
 
     @Query("select m from Member m left join fetch m.team")
     List<Member> findMemberFetchJoin();
 
 
+    //팀을 안쓰는 곳은 findAll(pageable, FetchPlan.NONE), 경로를 골라야 하면 findByUsername(username, FetchPlan)
     @Override
     @EntityGraph(attributePaths = {"team"})
     List<Member> findAll();
@@ -70,18 +74,49 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
+    //비관적 락 - select for update, 트랜잭션 끝날때까지 다른 쓰기를 막는다.
+    //충돌이 드물면 @Version + OptimisticRetryExecutor 로 락 없이 수정하는게 낫다.
+    @Transactional  //락은 primary 에서
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String username);
 
     List<UsernameOnly> findProjectionsByUsername(@Param("username") String username);
 
+    //SpEL 프로젝션을 다른 프로젝션과 같은 조건(전체, team left join)으로 - MemberQueryBenchmark
+    @Query("select m from Member m left join m.team t")
+    List<UsernameOnly> findProjectionsBy(Pageable pageable);
+
+    //컴파일 시점에 만든 구현 클래스 - 프록시, SpEL 없이 생성자 호출만 (select new UsernameOnlyDto(m.username, m.age))
+    List<UsernameOnlyDto> findProjectionDtoByUsername(@Param("username") String username);
+
     @Query(value = "select * from member where username =?", nativeQuery = true )
     Member findByNativeQuery(String username);
 
 
+    //내용만 - count 는 아래 findByNativeProjection 에서 CountMode 로
     @Query(value = "select m.member_id as id, m.username, t.name as teamName " +
-            "from member m left join team t ",
-            countQuery = "select count(*) from member",
+            "from member m left join team t on m.team_id = t.team_id",
             nativeQuery = true)
-    Page<MemberProjection> findByNativeProjection(Pageable pageable);
+    List<MemberProjection> findNativeProjectionBy(Pageable pageable);
+
+    //첫 페이지가 덜 차면 count 생략, CACHED 면 쿼리 캐시, ESTIMATED 면 DB 통계
+    default Page<MemberProjection> findByNativeProjection(Pageable pageable, CountMode countMode) {
+        return PageableExecutionUtils.getPage(findNativeProjectionBy(pageable), pageable, () -> countMembers(countMode));
+    }
+
+    default Page<MemberProjection> findByNativeProjection(Pageable pageable) {
+        return findByNativeProjection(pageable, CountMode.EXACT);
+    }
+
+    @Query(value = "select new study.datajpa.repository.MemberProjectionDto(m.id, m.username, t.name)" +
+            " from Member m left join m.team t",
+            countQuery = "select count(m) from Member m")
+    Page<MemberProjectionDto> findProjectionDtoPage(Pageable pageable);
+
+    //비동기 조회 - 커넥션 풀 크기로 제한된 repositoryExecutor 에서 실행 (AsyncConfig)
+    @Async("repositoryExecutor")
+    CompletableFuture<Page<Member>> findAsyncBy(Pageable pageable);
+
+    @Async("repositoryExecutor")
+    CompletableFuture<Member> findAsyncById(Long id);
 }
@@ -1,9 +1,88 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    /**
+     * 키셋 페이징 - lastId 다음 회원부터 member_id 순으로 limit 만큼 조회
+     * offset 을 쓰지 않아서 몇번째 페이지든 인덱스만 타고 바로 찾아간다.
+     * lastId 가 null 이면 첫 페이지
+     * */
+    List<Member> findMemberByCursor(Long lastId, int limit);
+
+    /**
+     * 대량 저장 - batch_size 만큼 persist 하고 flush/clear 반복
+     * 영속성 컨텍스트가 계속 커지지 않아서 메모리가 일정하다.
+     * 저장 후 넘겨준 엔티티는 준영속 상태가 된다. (호출한 쪽이 들고 있던 다른 엔티티는 그대로)
+     * 중간중간 flush 하니까 아직 안나간 변경도 같이 반영된다. 저장한 건수 반환
+     * */
+    long saveAllBatched(Stream<Member> members);
+
+    /**
+     * 전체 회원을 DTO 로 스트리밍 조회 - forward-only 커서로 한줄씩 읽는다.
+     * DTO 조회라 영속성 컨텍스트에 엔티티가 쌓이지 않는다.
+     * 트랜잭션 안에서 호출하고 다 쓰면 반드시 close 해야한다. (try-with-resources)
+     * */
+    Stream<MemberDto> streamMemberDto();
+
+    /**
+     * 읽기 전용 대량 조회 - StatelessSession 으로 한줄씩 읽어서 action 에 넘긴다. 읽은 건수 반환
+     * 영속성 컨텍스트, 스냅샷, 더티 체킹이 없다. 넘겨받은 Member 를 고쳐도 저장되지 않는다.
+     * team 은 fetch join, 같은 팀은 같은 인스턴스로 합친다. team.members 는 초기화되지 않는다.
+     * */
+    long readOnlyScan(Consumer<Member> action);
+
+    /**
+     * age 이상인 회원 나이 +1 (JPQL bulk) - 끝나면 영속성 컨텍스트를 비운다.
+     * 엔티티 이벤트가 없으니까 MemberBulkUpdatedEvent 를 발행한다. (커밋 후 통계 스냅샷 갱신)
+     * */
+    int bulkAgePlus(int age);
+
+    /**
+     * bulkAgePlus 와 같은 결과인데 영속성 컨텍스트를 통째로 비우지 않는다.
+     * 1차 캐시에 있는 회원 중 조건에 맞는 것만 새로고침(refresh), 2차 캐시 Member 영역은 한번에 비운다.
+     * */
+    int bulkAgePlusTargeted(int age);
+
+    /**
+     * bulkAgePlus 를 member_id 구간으로 나눠서 청크마다 커밋 (ChunkedBulkUpdater)
+     * 중간에 실패하면 다시 호출했을때 남은 구간부터 이어서 한다. 트랜잭션 밖에서 호출
+     * */
+    long bulkAgePlusChunked(int age);
+
+    /**
+     * count 를 어떻게 구할지 지정하는 페이징
+     * */
+    Page<Member> findAll(Pageable pageable, CountMode countMode);
+
+    //조건이 있어서 ESTIMATED 는 안된다. (IllegalArgumentException, 리포지토리 밖으로는 InvalidDataAccessApiUsageException)
+    Page<Member> findByAge(int age, Pageable pageable, CountMode countMode);
+
+    /**
+     * 전체 회원 수 - 페이징 count 용
+     * */
+    long countMembers(CountMode countMode);
+
+    /**
+     * fetch join 대상을 호출할때 정한다. FetchPlan.NONE 이면 연관관계는 지연로딩 그대로
+     * 페이징할때 컬렉션(team.members 등)은 안된다. (IllegalArgumentException, 리포지토리 밖으로는 InvalidDataAccessApiUsageException)
+     * */
+    Page<Member> findAll(Pageable pageable, FetchPlan fetchPlan);
+
+    List<Member> findByUsername(String username, FetchPlan fetchPlan);
+
+    /**
+     * 엔티티를 거치지 않고 JDBC 결과를 바로 MemberDto 로 - 영속성 컨텍스트, 스냅샷 없음
+     * team 은 join 하지 않는다. (teamName 은 null) 정렬은 id, username, age 만 가능
+     * */
+    Page<MemberDto> findMemberDtoPage(Pageable pageable, CountMode countMode);
 }
@@ -1,19 +1,361 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.query.Query;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.batch.ChunkedBulkUpdater;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.entity.audit.AuditClock;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    static final int BATCH_SIZE = 50;  // hibernate.jdbc.batch_size, 시퀀스 allocationSize 와 같게
+    static final int FETCH_SIZE = 500; // 스트리밍 조회시 JDBC 드라이버가 한번에 가져오는 row 수
+    static final String COUNT_CACHE_REGION = "member-count-region"; // application.conf 에 TTL
+
+    //DTO 직접 조회 - 리플렉션 없이 컬럼 순서대로 생성자 호출, MemberDto(Member) 처럼 팀 이름은 없다.
+    static final RowMapper<MemberDto> MEMBER_DTO_MAPPER =
+            (rs, rowNum) -> new MemberDto(rs.getLong(1), rs.getString(2), null);
+
+    //정렬 가능한 속성 -> 컬럼 (그대로 SQL 에 붙이니까 여기 있는 것만 허용)
+    private static final Map<String, String> MEMBER_DTO_SORT_COLUMNS = new HashMap<>();
+    static {
+        MEMBER_DTO_SORT_COLUMNS.put("id", "m.member_id");
+        MEMBER_DTO_SORT_COLUMNS.put("username", "m.username");
+        MEMBER_DTO_SORT_COLUMNS.put("age", "m.age");
+    }
+
     private final EntityManager em;
     // jDBC 템플릿 .. 등등 사용하고 싶다면 여기에 데이터베이스 커넥션 등등하면된다.
+    private final JdbcTemplate jdbcTemplate;
+    private final ChunkedBulkUpdater chunkedBulkUpdater;
+    private final ApplicationEventPublisher eventPublisher;
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    @Override
+    public List<Member> findMemberByCursor(Long lastId, int limit) {
+        TypedQuery<Member> query;
+        if (lastId == null) {
+            query = em.createQuery("select m from Member m order by m.id asc", Member.class);
+        } else {
+            query = em.createQuery("select m from Member m where m.id > :lastId order by m.id asc", Member.class)
+                    .setParameter("lastId", lastId);
+        }
+        return query
+                .setMaxResults(limit)  //offset 없이 limit 만
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public long saveAllBatched(Stream<Member> members) {
+        long count = 0;
+        Iterator<Member> iterator = members.iterator();
+        List<Member> chunk = new ArrayList<>(BATCH_SIZE);
+        AuditClock.Pin pin = AuditClock.pin();  //batch 하나는 같은 생성/수정 시각
+        try {
+            while (iterator.hasNext()) {
+                Member member = iterator.next();
+                em.persist(member);
+                chunk.add(member);
+                count++;
+                if (chunk.size() == BATCH_SIZE) {
+                    em.flush();  //모아둔 insert 를 JDBC batch 로 전송
+                    detach(chunk);  //1차 캐시에서 빼서 메모리 유지
+                    pin.close();
+                    pin = AuditClock.pin();
+                }
+            }
+            em.flush();
+            detach(chunk);
+        } finally {
+            pin.close();
+        }
+        return count;
+    }
+
+    //em.clear() 는 호출한 쪽이 들고 있던 엔티티까지 준영속으로 만든다. 저장한 것만 뺀다.
+    private void detach(List<Member> chunk) {
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
+    @Override
+    public Stream<MemberDto> streamMemberDto() {
+        ScrollableResults results = em.createQuery(
+                        "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                                " from Member m left join m.team t", MemberDto.class)
+                .unwrap(Query.class)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);  //앞으로만 읽는 커서
+
+        Spliterator<MemberDto> spliterator = new Spliterators.AbstractSpliterator<MemberDto>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super MemberDto> action) {
+                if (!results.next()) {
+                    return false;
+                }
+                action.accept((MemberDto) results.get(0));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(results::close);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long readOnlyScan(Consumer<Member> action) {
+        em.flush();  //같은 커넥션으로 읽으니까 아직 안나간 변경을 먼저 반영
+        SessionFactory sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            //지금 트랜잭션의 커넥션을 같이 쓴다. (풀에서 하나 더 잡지 않음)
+            StatelessSession session = sessionFactory.openStatelessSession(connection);
+            try (ScrollableResults results = session.createQuery(
+                            "select m from Member m left join fetch m.team", Member.class)
+                    .setFetchSize(FETCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                //StatelessSession 은 1차 캐시가 없어서 row 마다 Team 을 새로 만든다. id 로 하나만 남긴다.
+                LongObjectMap<Team> teams = new LongObjectMap<>();
+                long count = 0;
+                while (results.next()) {
+                    Member member = (Member) results.get(0);
+                    Team team = member.getTeam();
+                    if (team != null) {
+                        Team first = teams.putIfAbsent(team.getId(), team);
+                        if (first != null) {
+                            member.setTeam(first);
+                        }
+                    }
+                    action.accept(member);
+                    count++;
+                }
+                return count;
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlus(int age) {
+        //bulk 는 @Version 을 안올린다.
+        int count = em.createQuery("update Member m set m.age = m.age + 1, m.version = m.version + 1 where m.age >= :age")
+                .setParameter("age", age)
+                .executeUpdate();
+        em.clear();  //@Modifying(clearAutomatically = true) 와 같다.
+        eventPublisher.publishEvent(new MemberBulkUpdatedEvent("MemberRepository.bulkAgePlus", count));
+        return count;
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlusTargeted(int age) {
+        em.flush();  //변경 내용 먼저 반영 - refresh 할때 날라가지 않게
+
+        //1차 캐시에 있는 대상만 - flush 했으니까 메모리 값 == DB 값. id 를 따로 조회하지 않는다.
+        List<Member> targets = new ArrayList<>();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member && entry.getValue().getStatus() == Status.MANAGED
+                    && ((Member) entry.getKey()).getAge() >= age) {
+                targets.add((Member) entry.getKey());
+            }
+        }
+
+        //JPQL bulk - 하이버네이트가 Member 2차 캐시 영역을 한번에 비우고 member 테이블 쿼리 캐시(count 포함)를 무효화
+        int count = em.createQuery("update Member m set m.age = m.age + 1, m.version = m.version + 1 where m.age >= :age")
+                .setParameter("age", age)
+                .executeUpdate();
+
+        if (count > 0) {
+            targets.forEach(em::refresh);  //clear 하지 않고 대상만 다시 읽는다.
+        }
+        eventPublisher.publishEvent(new MemberBulkUpdatedEvent("MemberRepository.bulkAgePlusTargeted", count));
+        return count;
+    }
+
+    @Override
+    public long bulkAgePlusChunked(int age) {
+        long count = 0;
+        try {
+            count = chunkedBulkUpdater.execute("MemberRepository.bulkAgePlus(age=" + age + ")",
+                    "update Member m set m.age = m.age + 1, m.version = m.version + 1" +
+                            " where m.age >= :age and m.id >= :from and m.id < :to",
+                    Collections.singletonMap("age", age));
+            return count;
+        } finally {
+            //청크마다 이미 커밋했으니까 중간에 실패해도 발행한다. (트랜잭션 밖 - 바로 전달)
+            eventPublisher.publishEvent(new MemberBulkUpdatedEvent("MemberRepository.bulkAgePlusChunked", count));
+        }
+    }
+
+    @Override
+    public Page<Member> findAll(Pageable pageable, CountMode countMode) {
+        return findPage("select m from Member m", "select count(m) from Member m",
+                Collections.emptyMap(), pageable, countMode, FetchPlan.NONE);
+    }
+
+    @Override
+    public Page<Member> findAll(Pageable pageable, FetchPlan fetchPlan) {
+        if (pageable.isPaged() && fetchPlan.fetchesCollection(em, Member.class)) {
+            //컬렉션을 fetch join 하면 row 가 늘어나서 하이버네이트가 전부 읽고 메모리에서 자른다.
+            throw new IllegalArgumentException("페이징에서는 컬렉션을 같이 가져올 수 없습니다. " + fetchPlan);
+        }
+        return findPage("select m from Member m", "select count(m) from Member m",
+                Collections.emptyMap(), pageable, CountMode.EXACT, fetchPlan);
+    }
+
+    @Override
+    public List<Member> findByUsername(String username, FetchPlan fetchPlan) {
+        TypedQuery<Member> query = em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username);
+        return applyFetchPlan(query, fetchPlan).getResultList();
+    }
+
+    @Override
+    public Page<Member> findByAge(int age, Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.ESTIMATED) {
+            //추정치는 테이블 전체 건수뿐이다. 조건이 있는 count 로 몰래 바꾸지 않는다.
+            throw new IllegalArgumentException("조건이 있는 조회는 ESTIMATED 를 쓸 수 없습니다. EXACT 나 CACHED 로 호출하세요.");
+        }
+        return findPage("select m from Member m where m.age = :age", "select count(m) from Member m where m.age = :age",
+                Collections.singletonMap("age", age), pageable, countMode, FetchPlan.NONE);
+    }
+
+    @Override
+    public long countMembers(CountMode countMode) {
+        return count("select count(m) from Member m", Collections.emptyMap(), countMode);
+    }
+
+    private Page<Member> findPage(String jpql, String countJpql, Map<String, Object> params,
+                                  Pageable pageable, CountMode countMode, FetchPlan fetchPlan) {
+        TypedQuery<Member> query = em.createQuery(QueryUtils.applySorting(jpql, pageable.getSort(), "m"), Member.class);
+        params.forEach(query::setParameter);
+        applyFetchPlan(query, fetchPlan);  //count 쿼리에는 안붙인다.
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        List<Member> content = query.getResultList();
+
+        //첫 페이지가 덜 찼거나 마지막 페이지면 count 쿼리를 호출하지 않는다.
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(countJpql, params, countMode));
+    }
+
+    //@EntityGraph 와 같은 fetchgraph 힌트 - 지정한 연관관계만 fetch join, 나머지는 매핑대로
+    private <T> TypedQuery<T> applyFetchPlan(TypedQuery<T> query, FetchPlan fetchPlan) {
+        if (!fetchPlan.isEmpty()) {
+            query.setHint("javax.persistence.fetchgraph", fetchPlan.toEntityGraph(em, Member.class));
+        }
+        return query;
+    }
+
+    private long count(String countJpql, Map<String, Object> params, CountMode countMode) {
+        if (countMode == CountMode.ESTIMATED && isH2()) {
+            return estimateMemberCount();
+        }
+        TypedQuery<Long> countQuery = em.createQuery(countJpql, Long.class);
+        params.forEach(countQuery::setParameter);
+        if (countMode == CountMode.CACHED) {
+            //쿼리 캐시 - member 테이블에 insert/update/delete(bulk 포함)가 있으면 하이버네이트가 무효화 한다.
+            countQuery.setHint("org.hibernate.cacheable", true)
+                    .setHint("org.hibernate.cacheRegion", COUNT_CACHE_REGION);
+        }
+        return countQuery.getSingleResult();
+    }
+
+    //추정치를 읽는 쿼리가 H2 information_schema 전용
+    private boolean isH2() {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof H2Dialect;
+    }
+
+    //H2 통계의 추정치 - 정확하지 않지만 테이블을 스캔하지 않는다.
+    private long estimateMemberCount() {
+        Object estimate = em.createNativeQuery("select row_count_estimate from information_schema.tables" +
+                        " where table_schema = schema() and table_name = 'MEMBER'")
+                .getSingleResult();
+        return ((Number) estimate).longValue();
+    }
+
+    @Override
+    public Page<MemberDto> findMemberDtoPage(Pageable pageable, CountMode countMode) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.flush();  //JDBC 로 바로 읽으니까 아직 안나간 변경을 먼저 반영
+        }
+
+        //목록에는 팀을 안쓴다. team join 없이 member 만
+        StringBuilder sql = new StringBuilder("select m.member_id, m.username from member m");
+        sql.append(orderBy(pageable.getSort()));
+        List<Object> args = new ArrayList<>();
+        if (pageable.isPaged()) {
+            sql.append(" limit ? offset ?");
+            args.add(pageable.getPageSize());
+            args.add(pageable.getOffset());
+        }
+        List<MemberDto> content = jdbcTemplate.query(sql.toString(), MEMBER_DTO_MAPPER, args.toArray());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> countMembers(countMode));
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        StringJoiner orders = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order order : sort) {
+            String column = MEMBER_DTO_SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("정렬할 수 없는 속성입니다. property=" + order.getProperty());
+            }
+            orders.add(column + (order.isAscending() ? " asc" : " desc"));
+        }
+        return orders.toString();
+    }
 }
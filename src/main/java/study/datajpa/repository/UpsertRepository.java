@@ -0,0 +1,35 @@
+package study.datajpa.repository;
+
+/**
+ * 직접 id 를 넣는 엔티티(Persistable)용
+ * save() 는 isNew() 가 틀리면 merge 로 가서 insert 전에 select 를 한번 더 한다.
+ * insert, upsert 는 select 없이 바로 쓴다.
+ *
+ * public interface ItemRepository extends JpaRepository<Item, String>, UpsertRepository<Item>
+ * */
+public interface UpsertRepository<T> {
+
+    /**
+     * isNew() 를 보지않고 바로 persist - 이미 있으면 PK 위반 예외
+     * */
+    T insert(T entity);
+
+    /**
+     * batch_size 마다 flush 하면서 insert - 넣은 엔티티는 1차 캐시에서 뺀다. (다른 엔티티는 그대로)
+     * */
+    void insertAll(Iterable<T> entities);
+
+    /**
+     * 있으면 update, 없으면 insert 를 SQL 한번으로 (H2 MERGE USING, PostgreSQL ON CONFLICT, MySQL ON DUPLICATE KEY)
+     * 다른 DB 는 UnsupportedOperationException
+     * 엔티티 리스너는 안타고 @CreatedDate, @LastModifiedDate 는 직접 채운다. 영속성 컨텍스트에 올리지 않는다.
+     * 이미 있는 행은 생성 컬럼(@CreatedDate, @CreatedBy, updatable = false)을 그대로 둔다.
+     * 반환값은 insert/update 된 행 수 - 바꿀 컬럼이 없는 엔티티는 이미 있으면 0
+     * */
+    int upsert(T entity);
+
+    /**
+     * upsert 를 JDBC batch 로
+     * */
+    int upsertAll(Iterable<T> entities);
+}
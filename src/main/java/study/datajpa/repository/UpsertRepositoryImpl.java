@@ -0,0 +1,248 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+import study.datajpa.entity.audit.AuditClock;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+@RequiredArgsConstructor
+public class UpsertRepositoryImpl<T> implements UpsertRepository<T> {
+
+    static final int BATCH_SIZE = 50;  // hibernate.jdbc.batch_size
+
+    private final EntityManager em;
+    private final ObjectProvider<AuditingHandler> auditingHandler;
+
+    @Override
+    @Transactional
+    public T insert(T entity) {
+        em.persist(entity);
+        return entity;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(Iterable<T> entities) {
+        List<T> chunk = new ArrayList<>(BATCH_SIZE);
+        for (T entity : entities) {
+            em.persist(entity);
+            chunk.add(entity);
+            if (chunk.size() == BATCH_SIZE) {
+                em.flush();
+                detach(chunk);
+            }
+        }
+        em.flush();
+        detach(chunk);
+    }
+
+    //clear 하면 호출한 쪽이 들고 있는 다른 엔티티까지 준영속이 된다. 여기서 넣은 것만 뺀다.
+    private void detach(List<T> chunk) {
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
+    @Override
+    @Transactional
+    public int upsert(T entity) {
+        return upsertAll(Collections.singletonList(entity));
+    }
+
+    @Override
+    @Transactional
+    public int upsertAll(Iterable<T> entities) {
+        List<T> list = new ArrayList<>();
+        entities.forEach(list::add);
+        if (list.isEmpty()) {
+            return 0;
+        }
+
+        em.flush();  //먼저 쌓인 변경을 내보내야 순서가 맞는다.
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        Class<?> entityClass = Hibernate.getClass(list.get(0));
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getFactory()
+                .getMetamodel().entityPersister(entityClass);
+        UpsertSql upsertSql = upsertSql(persister, session.getJdbcServices().getDialect());
+        AuditingHandler handler = auditingHandler.getIfAvailable();
+
+        int count = session.doReturningWork(connection -> {
+            int updated = 0;
+            try (PreparedStatement ps = connection.prepareStatement(upsertSql.sql);
+                 AuditClock.Pin pin = AuditClock.pin()) {  //한번에 넣는 건 같은 생성 시각
+                for (int i = 0; i < list.size(); i++) {
+                    T entity = list.get(i);
+                    if (handler != null) {
+                        handler.markCreated(entity);  //이미 있는 행이면 생성 컬럼은 update 에서 빠진다.
+                    }
+                    bind(ps, persister, entity, session, upsertSql.parameters);
+                    ps.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        updated += sum(ps.executeBatch());
+                    }
+                }
+                if (list.size() % BATCH_SIZE != 0) {
+                    updated += sum(ps.executeBatch());
+                }
+            }
+            return updated;
+        });
+
+        //JDBC 로 직접 썼으니 캐시는 직접 비운다.
+        if (persister.canWriteToCache()) {
+            for (T entity : list) {
+                session.getFactory().getCache().evictEntityData(entityClass, persister.getIdentifier(entity, session));
+            }
+        }
+        session.getFactory().getCache().evictDefaultQueryRegion();
+        return count;
+    }
+
+    //parameters 순서대로 값을 바인딩 (ID 면 id, 아니면 속성 번호) - 연관관계(ManyToOne)는 타입이 FK 값으로 바꿔준다.
+    private static void bind(PreparedStatement ps, AbstractEntityPersister persister, Object entity,
+                             SessionImplementor session, int[] parameters) throws java.sql.SQLException {
+        Serializable id = persister.getIdentifier(entity, session);
+        if (id == null) {
+            throw new IllegalArgumentException("upsert 는 id 가 있어야 합니다. entity=" + entity);
+        }
+        Object[] values = persister.getPropertyValues(entity);
+        Type[] types = persister.getPropertyTypes();
+
+        int index = 1;
+        for (int parameter : parameters) {
+            Type type = parameter == UpsertSql.ID ? persister.getIdentifierType() : types[parameter];
+            type.nullSafeSet(ps, parameter == UpsertSql.ID ? id : values[parameter], index, session);
+            index += type.getColumnSpan(session.getFactory());
+        }
+    }
+
+    /**
+     * upsert SQL 과 ? 에 넣을 값의 순서
+     * */
+    static class UpsertSql {
+        static final int ID = -1;
+
+        final String sql;
+        final int[] parameters;
+
+        UpsertSql(String sql, List<Integer> parameters) {
+            this.sql = sql;
+            this.parameters = parameters.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    static UpsertSql upsertSql(AbstractEntityPersister persister, Dialect dialect) {
+        String table = persister.getTableName();
+        String[] idColumns = persister.getIdentifierColumnNames();
+
+        List<String> columns = new ArrayList<>();
+        List<Integer> writable = new ArrayList<>();   //insert 할 속성
+        List<String> updateColumns = new ArrayList<>();
+        List<Integer> updatable = new ArrayList<>();  //이미 있는 행에서 바꿀 속성 - id, updatable = false, @CreatedDate/@CreatedBy 는 빠진다.
+        Collections.addAll(columns, idColumns);
+        for (int i = 0; i < persister.getPropertyTypes().length; i++) {
+            if (!isWritable(persister, i)) {
+                continue;
+            }
+            writable.add(i);
+            Collections.addAll(columns, persister.getPropertyColumnNames(i));
+            if (isUpdatable(persister, i)) {
+                updatable.add(i);
+                Collections.addAll(updateColumns, persister.getPropertyColumnNames(i));
+            }
+        }
+        String columnList = String.join(", ", columns);
+        String params = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        String keys = String.join(", ", idColumns);
+        String insert = "insert into " + table + " (" + columnList + ") values (" + params + ")";
+
+        //id, 속성 순서 그대로
+        List<Integer> insertParameters = new ArrayList<>();
+        insertParameters.add(UpsertSql.ID);
+        insertParameters.addAll(writable);
+
+        if (dialect instanceof PostgreSQL81Dialect) {
+            StringJoiner updates = new StringJoiner(", ");
+            updateColumns.forEach(column -> updates.add(column + " = excluded." + column));
+            String onConflict = updateColumns.isEmpty() ? "do nothing" : "do update set " + updates;
+            return new UpsertSql(insert + " on conflict (" + keys + ") " + onConflict, insertParameters);
+        }
+        if (dialect instanceof MySQLDialect) {
+            StringJoiner updates = new StringJoiner(", ");
+            updateColumns.forEach(column -> updates.add(column + " = values(" + column + ")"));
+            if (updateColumns.isEmpty()) {
+                updates.add(idColumns[0] + " = " + idColumns[0]);  //바꿀게 없으면 아무것도 안하는 update
+            }
+            return new UpsertSql(insert + " on duplicate key update " + updates, insertParameters);
+        }
+        if (dialect instanceof H2Dialect) {
+            //merge into ... key (...) 는 모든 컬럼을 덮어쓴다. MERGE USING 으로 바꿀 컬럼만 update
+            //merge into t using dual on (t.id = ?) when matched then update set a = ? when not matched then insert (...) values (...)
+            StringJoiner on = new StringJoiner(" and ");
+            for (String idColumn : idColumns) {
+                on.add("t." + idColumn + " = ?");
+            }
+            List<Integer> parameters = new ArrayList<>();
+            parameters.add(UpsertSql.ID);
+            StringBuilder sql = new StringBuilder("merge into " + table + " t using dual on (" + on + ")");
+            if (!updateColumns.isEmpty()) {
+                StringJoiner updates = new StringJoiner(", ");
+                updateColumns.forEach(column -> updates.add(column + " = ?"));
+                sql.append(" when matched then update set ").append(updates);
+                parameters.addAll(updatable);
+            }
+            sql.append(" when not matched then insert (").append(columnList).append(") values (").append(params).append(")");
+            parameters.addAll(insertParameters);
+            return new UpsertSql(sql.toString(), parameters);
+        }
+        throw new UnsupportedOperationException("upsert 는 H2, PostgreSQL, MySQL 만 지원합니다. dialect=" + dialect);
+    }
+
+    //생성 정보는 처음 insert 때만
+    private static boolean isUpdatable(AbstractEntityPersister persister, int i) {
+        if (!persister.getPropertyUpdateability()[i]) {
+            return false;
+        }
+        Field field = ReflectionUtils.findField(persister.getMappedClass(), persister.getPropertyNames()[i]);
+        return field == null
+                || !(field.isAnnotationPresent(CreatedDate.class) || field.isAnnotationPresent(CreatedBy.class));
+    }
+
+    private static boolean isWritable(AbstractEntityPersister persister, int i) {
+        return persister.getPropertyInsertability()[i]
+                && !persister.getPropertyTypes()[i].isCollectionType()
+                && persister.getPropertyColumnNames(i).length > 0;
+    }
+
+    //행마다 바뀌었으면 1 - MySQL 은 update 면 2, 바뀐게 없으면 0 을 준다.
+    private static int sum(int[] results) {
+        int total = 0;
+        for (int result : results) {
+            if (result == Statement.SUCCESS_NO_INFO || result > 0) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
@@ -1,7 +1,10 @@
 package study.datajpa.repository;
 
 import org.springframework.beans.factory.annotation.Value;
+import study.datajpa.entity.Member;
+import study.datajpa.processor.GenerateProjection;
 
+@GenerateProjection(source = Member.class)  //UsernameOnlyDto 생성 - SpEL 을 자바 코드로
 public interface UsernameOnly {
 
     @Value("#{target.username + ' ' + target.age}")
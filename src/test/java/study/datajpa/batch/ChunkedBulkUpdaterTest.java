@@ -0,0 +1,169 @@
+package study.datajpa.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.audit.AuditClock;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//청크마다 커밋하니까 테스트 트랜잭션을 걸지 않는다.
+@SpringBootTest
+class ChunkedBulkUpdaterTest {
+
+    private static final String JPQL = "update Member m set m.age = m.age + 1" +
+            " where m.username like 'chunkResume%' and m.id >= :from and m.id < :to";
+    private static final String PREFIX_JPQL = "update Member m set m.age = m.age + 1" +
+            " where m.username like :prefix and m.id >= :from and m.id < :to";
+
+    @Autowired
+    ChunkedBulkUpdater chunkedBulkUpdater;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    EntityManager em;
+
+    //커밋한 회원, 남은 체크포인트를 지운다. 다른 테스트의 건수 검증이 실행 순서에 따라 바뀌지 않게
+    @AfterEach
+    void tearDown() {
+        AuditClock.configure(Clock.systemDefaultZone(), AuditClock.DEFAULT_RESOLUTION_MILLIS);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'chunk%'").executeUpdate();
+            em.createQuery("delete from BulkUpdateCheckpoint c").executeUpdate();
+        });
+    }
+
+    @Test
+    public void resumeAfterFailure() {
+        //given
+        memberRepository.saveAllBatched(IntStream.range(0, 30).mapToObj(i -> new Member("chunkResume" + i, 0)));
+
+        //when - 10건 넘게 커밋된 뒤에 죽는다.
+        assertThatThrownBy(() -> chunkedBulkUpdater.execute("chunkTest", JPQL, Collections.emptyMap(), 5, 0,
+                progress -> {
+                    if (progress.getTotalUpdatedRows() >= 10) {
+                        throw new IllegalStateException("crash");
+                    }
+                })).hasMessage("crash");
+        BulkUpdateCheckpoint checkpoint = em.find(BulkUpdateCheckpoint.class, "chunkTest");
+        long resumed = chunkedBulkUpdater.execute("chunkTest", JPQL, Collections.emptyMap(), 5, 0, progress -> { });
+
+        //then
+        assertThat(checkpoint.getUpdatedRows()).isBetween(10L, 29L);
+        assertThat(resumed).isEqualTo(30);
+        assertThat(chunkMembers("chunkResume")).hasSize(30).extracting(Member::getAge).containsOnly(1);  //한번씩만 적용
+        assertThat(em.find(BulkUpdateCheckpoint.class, "chunkTest")).isNull();
+    }
+
+    @Test
+    public void chunkedVariants() {
+        //given
+        memberRepository.saveAllBatched(Stream.of(
+                new Member("chunkAge1", 10_000), new Member("chunkAge2", 10_001), new Member("chunkAge3", 5)));
+
+        //when
+        long updated = memberRepository.bulkAgePlusChunked(10_000);
+        long updatedAgain = memberJpaRepository.bulkAgePlusChunked(10_001);
+
+        //then
+        assertThat(updated).isEqualTo(2);
+        assertThat(updatedAgain).isEqualTo(2);
+        assertThat(chunkMembers("chunkAge")).extracting(Member::getAge).containsExactlyInAnyOrder(10_002, 10_003, 5);
+    }
+
+    @Test
+    public void concurrentRunAppliesEachChunkOnce() {
+        //given
+        memberRepository.saveAllBatched(IntStream.range(0, 30).mapToObj(i -> new Member("chunkConcurrent" + i, 0)));
+        Map<String, String> params = Collections.singletonMap("prefix", "chunkConcurrent%");
+
+        //when - 첫 청크를 커밋한 뒤에 같은 작업을 다른 쓰레드에서 끝까지 돌린다.
+        long[] other = new long[1];
+        long first = chunkedBulkUpdater.execute("chunkConcurrent", PREFIX_JPQL, params, 5, 0, progress -> {
+            if (other[0] == 0) {
+                other[0] = CompletableFuture.supplyAsync(() -> chunkedBulkUpdater.execute(
+                        "chunkConcurrent", PREFIX_JPQL, params, 5, 0, p -> { })).join();
+            }
+        });
+
+        //then - 다른 실행이 진행한 구간을 다시 적용하지 않고 멈춘다.
+        assertThat(other[0]).isEqualTo(30);
+        assertThat(first).isLessThan(30);
+        assertThat(chunkMembers("chunkConcurrent")).hasSize(30).extracting(Member::getAge).containsOnly(1);
+        assertThat(em.find(BulkUpdateCheckpoint.class, "chunkConcurrent")).isNull();
+    }
+
+    @Test
+    public void oldCheckpointResumes() {
+        //given - 죽은 작업의 체크포인트
+        memberRepository.saveAllBatched(IntStream.range(0, 10).mapToObj(i -> new Member("chunkOld" + i, 0)));
+        Map<String, String> params = Collections.singletonMap("prefix", "chunkOld%");
+        assertThatThrownBy(() -> chunkedBulkUpdater.execute("chunkOld", PREFIX_JPQL, params, 5, 0,
+                progress -> {
+                    if (progress.getTotalUpdatedRows() > 0) {
+                        throw new IllegalStateException("crash");
+                    }
+                })).hasMessage("crash");
+        memberRepository.saveAllBatched(IntStream.range(10, 15).mapToObj(i -> new Member("chunkOldAfter" + i, 0)));
+
+        //when - 한참 뒤에 다시 부른다.
+        AuditClock.configure(Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(2)), 1);
+        long updated = chunkedBulkUpdater.execute("chunkOld", PREFIX_JPQL, params, 5, 0, progress -> { });
+
+        //then - 처음부터 하지 않고 nextId 부터. 이미 커밋된 청크에 다시 적용하지 않는다.
+        assertThat(updated).isEqualTo(10);
+        assertThat(chunkMembers("chunkOld").stream().filter(member -> !member.getUsername().startsWith("chunkOldAfter")))
+                .hasSize(10).extracting(Member::getAge).containsOnly(1);
+        assertThat(chunkMembers("chunkOldAfter")).hasSize(5).extracting(Member::getAge).containsOnly(0);  //시작 이후에 들어온 회원
+    }
+
+    @Test
+    public void abandon() {
+        //given
+        memberRepository.saveAllBatched(IntStream.range(0, 10).mapToObj(i -> new Member("chunkAbandon" + i, 0)));
+        Map<String, String> params = Collections.singletonMap("prefix", "chunkAbandon%");
+        assertThatThrownBy(() -> chunkedBulkUpdater.execute("chunkAbandon", PREFIX_JPQL, params, 5, 0,
+                progress -> {
+                    if (progress.getTotalUpdatedRows() > 0) {
+                        throw new IllegalStateException("crash");
+                    }
+                })).hasMessage("crash");
+
+        //when
+        boolean abandoned = chunkedBulkUpdater.abandon("chunkAbandon");
+
+        //then
+        assertThat(abandoned).isTrue();
+        assertThat(chunkedBulkUpdater.abandon("chunkAbandon")).isFalse();
+        assertThat(em.find(BulkUpdateCheckpoint.class, "chunkAbandon")).isNull();
+    }
+
+    private List<Member> chunkMembers(String prefix) {
+        return memberRepository.findAll().stream()
+                .filter(member -> member.getUsername() != null && member.getUsername().startsWith(prefix))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,68 @@
+package study.datajpa.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//구간마다 워커 쓰레드에서 새 트랜잭션으로 읽으니까 데이터는 커밋돼 있어야 한다. (@Transactional 안붙임)
+@SpringBootTest
+class MemberPartitionScannerTest {
+
+    @Autowired
+    MemberPartitionScanner scanner;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    EntityManager em;
+
+    //커밋한 회원을 지운다. 다른 테스트의 건수 검증(나이, 페이징)이 실행 순서에 따라 바뀌지 않게
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member m where m.username like 'partition%'").executeUpdate());
+    }
+
+    @Test
+    public void reduceAndMap() {
+        //given
+        memberRepository.saveAllBatched(IntStream.range(0, 200)
+                .mapToObj(i -> new Member("partition" + i, i)));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        //when
+        long count = scanner.reduce(7, member -> {
+            threads.add(Thread.currentThread().getName());
+            return isPartition(member) ? 1L : 0L;
+        }, 0L, Long::sum);
+        long ageSum = scanner.reduce(7, member -> isPartition(member) ? (long) member.getAge() : 0L, 0L, Long::sum);
+        List<Long> ids = scanner.map(7, Member::getId).collect(Collectors.toList());
+
+        //then
+        assertThat(count).isEqualTo(200);
+        assertThat(ageSum).isEqualTo(199 * 200 / 2);
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids.size()).isGreaterThanOrEqualTo(200);
+        assertThat(threads).allMatch(name -> name.startsWith("member-scan-"));
+    }
+
+    private static boolean isPartition(Member member) {
+        return member.getUsername() != null && member.getUsername().startsWith("partition");
+    }
+}
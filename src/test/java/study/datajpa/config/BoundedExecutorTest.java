@@ -0,0 +1,44 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedExecutorTest {
+
+    @Test
+    public void rejectWhenFull() throws Exception {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        BoundedExecutor executor = new BoundedExecutor(pool, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        Runnable task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        };
+
+        executor.execute(task);  //실행
+        executor.execute(task);  //대기
+        assertThatThrownBy(() -> executor.execute(task))
+                .isInstanceOf(TaskRejectedException.class);
+
+        release.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);  //커넥션 풀 크기 만큼만 동시에
+    }
+}
@@ -0,0 +1,65 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+import study.datajpa.entity.Member;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimisticRetryExecutorTest {
+
+    @Test
+    public void retryUntilSuccess() {
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction(), 5, 1, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute(status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Member.class, 1L);
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void giveUpAfterMaxAttempts() {
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction(), 3, 1, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute(status -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Member.class, 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void noRetryForOtherExceptions() {
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction(), 5, 1, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute(status -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException();
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void backoffWithinCeiling() {
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(TransactionOperations.withoutTransaction(), 10, 4, 50);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(executor.backoffMillis(1)).isBetween(0L, 4L);
+            assertThat(executor.backoffMillis(3)).isBetween(0L, 16L);
+            assertThat(executor.backoffMillis(10)).isBetween(0L, 50L);
+        }
+    }
+}
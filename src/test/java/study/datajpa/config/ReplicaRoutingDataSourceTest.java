@@ -0,0 +1,97 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 메모리 H2 두개로 primary / replica 라우팅 확인
+ * */
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "");
+    DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "");
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readOnlyGoesToReplica() throws Exception {
+        DataSource dataSource = lazy(routing(null));
+
+        assertThat(url(dataSource)).contains("primary");
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(url(dataSource)).contains("replica");
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() throws Exception {
+        ReplicaRoutingDataSource routing = routing("select 10");  //10초 뒤쳐짐
+        routing.checkReplicas();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.getHealthyReplicas()).isEmpty();
+        assertThat(url(lazy(routing))).contains("primary");
+    }
+
+    @Test
+    public void unknownLagFallsBackToPrimary() {
+        ReplicaRoutingDataSource noRow = routing("select 1 where 1 = 0");
+        ReplicaRoutingDataSource nullLag = routing("select cast(null as bigint)");
+        noRow.checkReplicas();
+        nullLag.checkReplicas();
+
+        //지연을 모르면 0 으로 보지 않는다.
+        assertThat(noRow.getHealthyReplicas()).isEmpty();
+        assertThat(nullLag.getHealthyReplicas()).isEmpty();
+    }
+
+    @Test
+    public void closeClosesPools() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:replicaPool;DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                Collections.singletonMap("replica0", pool), null, 5);
+
+        routing.close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    private ReplicaRoutingDataSource routing(String lagQuery) {
+        Map<String, DataSource> replicas = Collections.singletonMap("replica0", replica);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, lagQuery, 5);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static DataSource lazy(ReplicaRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static String url(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import study.datajpa.dto.CursorResult;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 요청 값 검증만 - DB 없이 리포지토리는 mock
+ * */
+class MemberControllerTest {
+
+    MemberRepository memberRepository = mock(MemberRepository.class);
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new MemberController(memberRepository, new ObjectMapper()))
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .build();
+    }
+
+    @Test
+    public void malformedCursor() throws Exception {
+        mockMvc.perform(get("/member/cursor").param("cursor", "!!not-base64!!"))
+                .andExpect(status().isBadRequest());
+        //base64 는 맞는데 숫자가 아닌 경우 (변조)
+        mockMvc.perform(get("/member/cursor").param("cursor", "YWJj"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    public void unknownSort() throws Exception {
+        when(memberRepository.findMemberDtoPage(any(Pageable.class), any(CountMode.class)))
+                .thenThrow(new InvalidDataAccessApiUsageException("정렬할 수 없는 속성입니다.",
+                        new IllegalArgumentException("정렬할 수 없는 속성입니다. property=createBy")));
+
+        mockMvc.perform(get("/member").param("sort", "createBy"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void validCursor() throws Exception {
+        when(memberRepository.findMemberByCursor(anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/member/cursor").param("cursor", CursorResult.encode(10L)).param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        verify(memberRepository).findMemberByCursor(eq(10L), eq(6));
+    }
+}
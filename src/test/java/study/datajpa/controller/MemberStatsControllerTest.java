@@ -0,0 +1,82 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import study.datajpa.readmodel.MemberColumns;
+import study.datajpa.readmodel.MemberColumnsLoader;
+import study.datajpa.repository.MemberBulkUpdatedEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 스냅샷은 따로 띄운 메모리 DB 에서 읽는다. (공유 H2 에 테이블을 만들지 않게)
+ * */
+class MemberStatsControllerTest {
+
+    EmbeddedDatabase dataSource;
+    JdbcTemplate jdbcTemplate;
+    MemberColumns columns = new MemberColumns();
+    MemberColumnsLoader loader;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table member (member_id bigint primary key, username varchar(255), age int, team_id bigint)");
+        jdbcTemplate.update("insert into member values (1, 'a', 10, 1), (2, 'b', 20, 1)");
+
+        loader = new MemberColumnsLoader(columns, dataSource);
+        loader.rebuild();
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("memberColumns", columns);
+        beanFactory.addBean("memberColumnsLoader", loader);
+        mockMvc = MockMvcBuilders.standaloneSetup(new MemberStatsController(
+                        beanFactory.getBeanProvider(MemberColumns.class),
+                        beanFactory.getBeanProvider(MemberColumnsLoader.class)))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void rebuildAfterBulkUpdate() throws Exception {
+        jdbcTemplate.update("update member set age = age + 1");
+        //커밋 후에 받는 이벤트
+        loader.onBulkUpdated(new MemberBulkUpdatedEvent("test", 2));
+        assertThat(loader.isStale()).isTrue();
+
+        mockMvc.perform(get("/member/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageAge").value(16.0));
+        assertThat(loader.isStale()).isFalse();
+    }
+
+    @Test
+    public void bucketClamped() throws Exception {
+        mockMvc.perform(get("/member/stats").param("bucket", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bucket").value(MemberStatsController.MIN_BUCKET));
+        mockMvc.perform(get("/member/stats").param("bucket", "-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bucket").value(MemberStatsController.MIN_BUCKET));
+    }
+}
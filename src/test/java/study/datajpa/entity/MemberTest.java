@@ -77,4 +77,25 @@ class MemberTest {
         System.out.println("findMember.update = " + findMember.getLastModifiedBy());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void auditingSharedInFlush() {
+        //given
+        Team teamA = new Team("auditA");
+        Team teamB = new Team("auditB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = memberRepository.save(new Member("audit1"));
+        Member member2 = memberRepository.save(new Member("audit2"));
+        em.flush();
+
+        //when
+        teamA.setName("auditA2");
+        teamB.setName("auditB2");
+        em.flush();  //@PreUpdate - flush 한번은 같은 시각
+
+        //then
+        assertEquals(teamA.getUpdateDate(), teamB.getUpdateDate());
+        assertEquals(member1.getCreateBy(), member2.getCreateBy());  //트랜잭션 안에서는 같은 등록자
+    }
+}
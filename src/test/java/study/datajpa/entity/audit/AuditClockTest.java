@@ -0,0 +1,80 @@
+package study.datajpa.entity.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditClockTest {
+
+    @AfterEach
+    public void reset() {
+        AuditClock.configure(Clock.systemDefaultZone(), AuditClock.DEFAULT_RESOLUTION_MILLIS);
+    }
+
+    @Test
+    public void coarseClockReusesSlot() {
+        MutableClock source = new MutableClock(1_000_003L);
+        CoarseClock clock = new CoarseClock(source, 10);
+
+        LocalDateTime first = clock.now();
+        source.millis = 1_000_009L;
+        LocalDateTime sameSlot = clock.now();
+        source.millis = 1_000_010L;
+        LocalDateTime nextSlot = clock.now();
+
+        assertThat(sameSlot).isSameAs(first);
+        assertThat(first).isEqualTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(1_000_000L), ZoneOffset.UTC));
+        assertThat(nextSlot).isEqualTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(1_000_010L), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void pin() {
+        MutableClock source = new MutableClock(5_000L);
+        AuditClock.configure(source, 1);
+
+        try (AuditClock.Pin outer = AuditClock.pin()) {
+            LocalDateTime pinned = AuditClock.now();
+            source.millis = 6_000L;
+            try (AuditClock.Pin inner = AuditClock.pin()) {
+                assertThat(AuditClock.now()).isEqualTo(pinned);
+            }
+            assertThat(AuditClock.now()).isEqualTo(pinned);  //안쪽 close 는 풀지 않는다.
+        }
+        assertThat(AuditClock.now()).isEqualTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(6_000L), ZoneOffset.UTC));
+    }
+
+    static class MutableClock extends Clock {
+        long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package study.datajpa.entity.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeOrderedIdTest {
+
+    @Test
+    public void orderedAsString() {
+        TimeOrderedId generator = new TimeOrderedId(1);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertThat(ids).isSorted();              //문자열 정렬 == 생성 순서
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(ids.get(0)).hasSize(13);
+    }
+
+    @Test
+    public void uniqueAcrossThreads() throws Exception {
+        TimeOrderedId generator = new TimeOrderedId(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextLong());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ids).hasSize(80_000);
+    }
+
+    @Test
+    public void invalidNode() {
+        assertThatThrownBy(() -> new TimeOrderedId(1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,25 @@
+package study.datajpa.query;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCountInterceptorTest {
+
+    @Test
+    public void asyncRequestDoesNotLeakCounter() {
+        QueryCountInterceptor interceptor = new QueryCountInterceptor(3);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/member/async");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        assertThat(QueryCounter.current()).isNotNull();
+
+        //핸들러가 CompletableFuture 를 반환 - 서블릿 쓰레드는 여기서 반납된다.
+        interceptor.afterConcurrentHandlingStarted(request, response, new Object());
+
+        assertThat(QueryCounter.current()).isNull();
+    }
+}
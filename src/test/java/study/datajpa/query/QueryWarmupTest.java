@@ -0,0 +1,34 @@
+package study.datajpa.query;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class QueryWarmupTest {
+
+    @Autowired
+    QueryWarmup queryWarmup;
+
+    @Test
+    public void warmup() {
+        QueryCounter.start();
+        Map<String, Long> elapsed = queryWarmup.warmup();
+        QueryCount count = QueryCounter.stop();
+
+        assertThat(elapsed).containsKeys(
+                "@NamedQuery Member.findByUsername",
+                "MemberRepository.findMemberDto",
+                "MemberRepository.findMemberFetchJoin",
+                "MemberRepository.findProjectionDtoPage (count)");
+        assertThat(elapsed).doesNotContainKeys(
+                "MemberRepository.findByAge",               //메서드 이름 쿼리
+                "MemberRepository.findNativeProjectionBy"); //native
+        assertThat(elapsed.values()).allMatch(nanos -> nanos >= 0);  //실패한 쿼리 없음
+        assertThat(count.getTotal()).isEqualTo(0);  //아무것도 실행하지 않는다.
+    }
+}
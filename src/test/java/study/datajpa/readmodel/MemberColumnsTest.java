@@ -0,0 +1,71 @@
+package study.datajpa.readmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberColumnsTest {
+
+    @Test
+    public void aggregate() {
+        MemberColumns columns = new MemberColumns();
+        columns.upsert(1L, "a", 5, 10L);
+        columns.upsert(2L, "b", 15, 10L);
+        columns.upsert(3L, "a", 25, 20L);
+        columns.upsert(4L, "c", 12, null);
+
+        Map<Long, long[]> buckets = columns.countByTeamAndAgeBucket(10);
+
+        assertThat(columns.size()).isEqualTo(4);
+        assertThat(columns.countByAgeBetween(10, 20)).isEqualTo(2);
+        assertThat(columns.countByUsername("a")).isEqualTo(2);
+        assertThat(columns.countByUsername("none")).isEqualTo(0);
+        assertThat(columns.averageAge()).isEqualTo(14.25);
+        assertThat(buckets.get(10L)).containsExactly(1, 1, 0);
+        assertThat(buckets.get(20L)).containsExactly(0, 0, 1);
+        assertThat(buckets.get(MemberColumns.NO_TEAM)).containsExactly(0, 1, 0);
+    }
+
+    @Test
+    public void updateAndRemove() {
+        MemberColumns columns = new MemberColumns();
+        columns.upsert(1L, "a", 5, 10L);
+        columns.upsert(2L, "b", 15, 10L);
+        columns.upsert(3L, "c", 25, 20L);
+
+        columns.upsert(1L, "a", 30, 20L);  //수정
+        columns.remove(2L);                //가운데 행 삭제 - 마지막 행이 옮겨온다.
+        columns.remove(99L);
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.countByAgeBetween(0, 20)).isEqualTo(0);
+        assertThat(columns.countByTeamAndAgeBucket(100)).containsOnlyKeys(20L);
+        assertThat(columns.countByTeamAndAgeBucket(100).get(20L)).containsExactly(2);
+
+        columns.remove(3L);
+        assertThat(columns.averageAge()).isEqualTo(30);
+    }
+
+    @Test
+    public void rebuildKeepsConcurrentChanges() {
+        MemberColumns columns = new MemberColumns();
+        columns.upsert(1L, "old", 1, null);
+
+        columns.rebuild(fresh -> {
+            fresh.upsert(1L, "a", 10, 10L);
+            fresh.upsert(2L, "b", 20, 10L);
+            //읽는 도중에 커밋된 변경
+            columns.upsert(2L, "b", 21, 10L);
+            columns.upsert(3L, "c", 30, 10L);
+            columns.remove(1L);
+            assertThat(columns.countByUsername("old")).isEqualTo(0);  //이전 스냅샷에도 반영
+        });
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.countByUsername("a")).isEqualTo(0);
+        assertThat(columns.countByAgeBetween(21, 22)).isEqualTo(1);
+        assertThat(columns.countByUsername("c")).isEqualTo(1);
+    }
+}
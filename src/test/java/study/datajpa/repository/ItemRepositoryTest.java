@@ -3,18 +3,90 @@ package study.datajpa.repository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import study.datajpa.entity.Item;
+import study.datajpa.query.QueryCount;
+import study.datajpa.query.QueryCounter;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class ItemRepositoryTest {
 
     @Autowired ItemRepository itemRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
 
     @Test
     public void save() {
         Item item = new Item("A");
         itemRepository.save(item);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveAssignedId() {
+        Item saved = itemRepository.save(new Item("assigned-1"));
+
+        assertThat(saved.getId()).isEqualTo("assigned-1");  //persist - merge 처럼 select 후 복사하지 않는다.
+        assertThat(saved.isNew()).isFalse();
+        assertThat(itemRepository.findById("assigned-1")).isPresent();
+    }
+
+    @Test
+    public void generatedId() {
+        Item item1 = itemRepository.save(new Item(null));
+        Item item2 = itemRepository.save(new Item(null));
+
+        assertThat(item1.getId()).isNotNull();
+        assertThat(item2.getId()).isGreaterThan(item1.getId());  //시간순
+    }
+
+    @Test
+    public void insertWithoutSelect() {
+        QueryCounter.start();
+        itemRepository.insert(new Item("insert-1"));
+        QueryCount count = QueryCounter.stop();
+
+        assertThat(count.getSelectCount()).isEqualTo(0);  //merge 처럼 select 하지 않는다.
+        assertThat(itemRepository.existsById("insert-1")).isTrue();
+    }
+
+    @Test
+    public void insertAllKeepsOtherEntities() {
+        Item inserted = new Item("insertAll-1");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Item held = new Item("insertAll-held");
+            em.persist(held);
+
+            itemRepository.insertAll(Arrays.asList(inserted, new Item("insertAll-2")));
+
+            assertThat(em.contains(held)).isTrue();       //호출한 쪽 엔티티는 그대로
+            assertThat(em.contains(inserted)).isFalse();  //넣은 것만 뺐다.
+        });
+
+        assertThat(itemRepository.existsById("insertAll-held")).isTrue();
+        assertThat(itemRepository.existsById("insertAll-2")).isTrue();
+    }
+
+    @Test
+    public void upsert() throws Exception {
+        itemRepository.upsert(new Item("upsert-1"));
+        LocalDateTime created = itemRepository.findById("upsert-1").get().getCreateDate();
+        Thread.sleep(10);  //시각이 달라지게
+
+        int count = itemRepository.upsertAll(Arrays.asList(new Item("upsert-1"), new Item("upsert-2")));
+
+        //upsert-1 은 이미 있고 바꿀 컬럼이 없다. (생성 시각은 덮어쓰지 않는다.)
+        assertThat(count).isEqualTo(1);
+        assertThat(created).isNotNull();
+        assertThat(itemRepository.findById("upsert-1").get().getCreateDate()).isEqualTo(created);
+        assertThat(itemRepository.findById("upsert-2").get().getCreateDate()).isAfter(created);
+    }
+}
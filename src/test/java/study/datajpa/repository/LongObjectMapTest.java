@@ -0,0 +1,25 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectMapTest {
+
+    @Test
+    public void putIfAbsent() {
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+
+        for (long key = -1_000; key < 1_000; key++) {
+            assertThat(map.putIfAbsent(key, "v" + key)).isNull();
+        }
+        assertThat(map.putIfAbsent(0L, "other")).isEqualTo("v0");
+
+        assertThat(map.size()).isEqualTo(2_000);
+        assertThat(map.get(0L)).isEqualTo("v0");
+        assertThat(map.get(-1_000L)).isEqualTo("v-1000");
+        assertThat(map.get(999L)).isEqualTo("v999");
+        assertThat(map.get(1_000L)).isNull();
+        assertThat(map.get(Long.MIN_VALUE)).isNull();
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
+import study.datajpa.metrics.RepositoryMetrics;
 
 import java.util.List;
 
@@ -19,6 +20,8 @@ class MemberJPARepositoryTest {
 
     @Autowired
     MemberJpaRepository memberJpaRepository;
+    @Autowired
+    RepositoryMetrics repositoryMetrics;
 
     @Test
     public void testMember() {
@@ -125,4 +128,15 @@ class MemberJPARepositoryTest {
         //then
         assertThat(resultCount).isEqualTo(3);  //현재 20살이상  3명
     }
-}
\ No newline at end of file
+
+    @Test
+    public void metrics() {
+        memberJpaRepository.save(new Member("metrics1", 10));
+        long count = memberJpaRepository.count();
+
+        assertThat(count).isGreaterThanOrEqualTo(1);
+        assertThat(repositoryMetrics.get("MemberJpaRepository.count()").getCalls()).isGreaterThanOrEqualTo(1);
+        assertThat(repositoryMetrics.get("MemberJpaRepository.count()").snapshot().get("statements"))
+                .isNotEqualTo(0L);
+    }
+}
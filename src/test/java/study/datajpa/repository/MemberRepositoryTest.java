@@ -1,25 +1,40 @@
 package study.datajpa.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.config.OptimisticRetryExecutor;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.metrics.MethodStats;
+import study.datajpa.metrics.RepositoryMetrics;
+import study.datajpa.query.QueryCount;
+import study.datajpa.query.QueryCounter;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +47,10 @@ class MemberRepositoryTest {
     MemberRepository memberRepository;
     @Autowired
     TeamRepository teamRepository;
+    @Autowired
+    RepositoryMetrics repositoryMetrics;
+    @Autowired
+    OptimisticRetryExecutor optimisticRetryExecutor;
 
     @PersistenceContext
     EntityManager em;
@@ -371,6 +390,482 @@ class MemberRepositoryTest {
         System.out.println("result " + result);
     }
 
+    @Test
+    @DisplayName("키셋(커서)으로 페이징 한다")
+    public void cursorPaging() {
+        //given
+        Member m1 = memberRepository.save(new Member("member1", 10));
+        Member m2 = memberRepository.save(new Member("member2", 10));
+        Member m3 = memberRepository.save(new Member("member3", 10));
+        Member m4 = memberRepository.save(new Member("member4", 10));
+        Member m5 = memberRepository.save(new Member("member5", 10));
+
+        //when
+        List<Member> first = memberRepository.findMemberByCursor(m1.getId() - 1, 3);  //다른 테스트 데이터 제외
+        Long lastId = first.get(first.size() - 1).getId();
+        List<Member> second = memberRepository.findMemberByCursor(lastId, 3);
+
+        //then
+        assertThat(first).containsExactly(m1, m2, m3);
+        assertThat(second).containsExactly(m4, m5);
+    }
+
+    @Test
+    @DisplayName("대량 저장을 batch 로 한다")
+    public void saveAllBatched() {
+        //given
+        int size = 1000;
+        long before = memberRepository.count();
+        Member held = memberRepository.save(new Member("held", 10));  //호출한 쪽이 들고 있는 엔티티
+
+        //when
+        long saved = memberRepository.saveAllBatched(IntStream.range(0, size)
+                .mapToObj(i -> new Member("batch" + i, i)));
+
+        //then - 속도 비교는 src/jmh BatchInsertBenchmark
+        assertThat(saved).isEqualTo(size);
+        assertThat(memberRepository.count()).isEqualTo(before + size + 1);
+        assertThat(em.contains(held)).isTrue();  //저장한 것만 준영속
+    }
+
+    @Test
+    @DisplayName("회원 DTO를 스트리밍으로 조회한다")
+    public void streamMemberDto() {
+        //given
+        Team teamA = new Team("teamA");
+        teamRepository.save(teamA);
+        Member m1 = memberRepository.save(new Member("stream1", 10, teamA));
+        Member m2 = memberRepository.save(new Member("stream2", 20));
+        em.flush();
+        em.clear();
+
+        //when
+        List<MemberDto> result;
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto()) {
+            result = stream.filter(dto -> dto.getUsername() != null && dto.getUsername().startsWith("stream"))
+                    .collect(Collectors.toList());
+        }
+
+        //then
+        assertThat(result).extracting("id").containsExactlyInAnyOrder(m1.getId(), m2.getId());
+        assertThat(result).extracting("teamName").containsExactlyInAnyOrder("teamA", null);
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0); //영속성 컨텍스트에 안쌓인다
+    }
+
+    @Test
+    @DisplayName("지연로딩 N + 1 을 감지한다")
+    public void detectNPlusOne() {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Team teamC = new Team("teamC");
+        teamRepository.save(teamA);
+        teamRepository.save(teamB);
+        teamRepository.save(teamC);
+        Member m1 = memberRepository.save(new Member("lazy1", 10, teamA));
+        memberRepository.save(new Member("lazy2", 10, teamB));
+        memberRepository.save(new Member("lazy3", 10, teamC));
+        em.flush();
+        em.clear();
+
+        //when
+        QueryCounter.start();
+        try {
+            List<Member> members = memberRepository.findMemberByCursor(m1.getId() - 1, 3);
+            for (Member member : members) {
+                member.getTeam().getName();  //default_batch_fetch_size - 첫 프록시 초기화때 in (...) 으로 한번에
+            }
+        } finally {
+            QueryCount batch = QueryCounter.stop();
+
+            //then
+            assertThat(batch.getSelectCount()).isEqualTo(2);  // 1 + 1
+            assertThat(batch.repeatedSelects(1)).isEmpty();
+        }
+
+        em.clear();
+        em.getEntityManagerFactory().getCache().evict(Team.class);  //위에서 로딩하면서 2차 캐시에 들어갔다.
+        QueryCounter.start();
+        try {
+            for (Team team : Arrays.asList(teamA, teamB, teamC)) {
+                teamRepository.findById(team.getId()).get().getName();  //팀 하나당 select 한번
+            }
+        } finally {
+            QueryCount repeated = QueryCounter.stop();
+
+            //then
+            assertThat(repeated.getSelectCount()).isEqualTo(3);
+            assertThat(repeated.repeatedSelects(1)).hasSize(1);
+            assertThat(repeated.repeatedSelects(1).get(0).getCaller()).isEqualTo("TeamRepository.findById");
+            assertThatThrownBy(() -> repeated.assertRepeatedSelectsAtMost(1))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+
+        em.clear();
+        QueryCounter.start();
+        memberRepository.findMemberFetchJoin().forEach(member -> {
+            if (member.getTeam() != null) {
+                member.getTeam().getName();
+            }
+        });
+        QueryCount fetchJoin = QueryCounter.stop();
+        assertThat(fetchJoin.getSelectCount()).isEqualTo(1);
+        fetchJoin.assertRepeatedSelectsAtMost(1);
+    }
+
+    @Test
+    @DisplayName("2차 캐시는 bulk update 후 무효화 된다")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  //커밋되어야 2차 캐시에 들어간다.
+    public void secondLevelCache() {
+        //given
+        Cache cache = em.getEntityManagerFactory().getCache();
+        Team team = teamRepository.save(new Team("cacheTeam"));
+        Member member = memberRepository.save(new Member("cache1", 200, team));
+
+        assertThat(cache.contains(Team.class, team.getId())).isTrue();
+        assertThat(cache.contains(Member.class, member.getId())).isTrue();
+
+        try {
+            //when
+            memberRepository.bulkAgePlus(200);
+
+            //then
+            assertThat(cache.contains(Member.class, member.getId())).isFalse();
+            assertThat(cache.contains(Team.class, team.getId())).isTrue();
+            assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(201);
+        } finally {
+            //커밋된 데이터라 롤백되지 않는다. 다른 테스트의 건수 검증이 깨지지 않게 지운다.
+            memberRepository.deleteById(member.getId());
+            teamRepository.deleteById(team.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("bulk update 대상만 새로고침 하고 나머지는 영속 상태를 유지한다")
+    public void bulkUpdateTargeted() {
+        //given
+        Team team = teamRepository.save(new Team("teamA"));
+        Member young = memberRepository.save(new Member("young", 10, team));
+        Member old = memberRepository.save(new Member("old", 300, team));
+
+        //when
+        int resultCount = memberRepository.bulkAgePlusTargeted(300);
+
+        //then
+        assertThat(resultCount).isEqualTo(1);
+        assertThat(old.getAge()).isEqualTo(301);       //새로고침 됨
+        assertThat(young.getAge()).isEqualTo(10);
+        assertThat(em.contains(old)).isTrue();
+        assertThat(em.contains(young)).isTrue();       //clear 되지 않는다.
+        assertThat(em.contains(team)).isTrue();
+    }
+
+    @Test
+    @DisplayName("첫 페이지가 덜 차면 count 쿼리를 생략한다")
+    public void pagingCountMode() {
+        //given
+        memberRepository.save(new Member("count1", 400));
+        memberRepository.save(new Member("count2", 400));
+        memberRepository.save(new Member("count3", 400));
+        em.flush();
+        em.clear();
+
+        //when
+        QueryCounter.start();
+        Page<Member> shortPage = memberRepository.findByAge(400, PageRequest.of(0, 10), CountMode.CACHED);
+        QueryCount shortCount = QueryCounter.stop();
+
+        Page<Member> fullPage = memberRepository.findByAge(400, PageRequest.of(0, 2, Sort.by("username")), CountMode.CACHED);
+
+        //then
+        assertThat(shortPage.getTotalElements()).isEqualTo(3);
+        assertThat(shortCount.getSelectCount()).isEqualTo(1);  //count 쿼리 없음
+        assertThat(fullPage.getContent()).extracting("username").containsExactly("count1", "count2");
+        assertThat(fullPage.getTotalElements()).isEqualTo(3);
+        assertThat(fullPage.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    @Rollback
+    @DisplayName("캐시된 count 는 bulk update 후 다시 계산한다")
+    public void cachedCountAfterBulkUpdate() {
+        //given
+        IntStream.range(0, 4).forEach(i -> memberRepository.save(new Member("stale" + i, 909)));
+        IntStream.range(0, 3).forEach(i -> memberRepository.save(new Member("fresh" + i, 910)));
+        em.flush();
+        assertThat(memberRepository.findByAge(910, PageRequest.of(0, 2), CountMode.CACHED).getTotalElements())
+                .isEqualTo(3);
+
+        //when - 909 -> 910, 910 -> 911
+        memberRepository.bulkAgePlusTargeted(909);
+
+        //then
+        assertThat(memberRepository.findByAge(910, PageRequest.of(0, 2), CountMode.CACHED).getTotalElements())
+                .isEqualTo(4);
+        assertThatThrownBy(() -> memberRepository.findByAge(910, PageRequest.of(0, 2), CountMode.ESTIMATED))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @Rollback
+    @DisplayName("native 프로젝션도 첫 페이지가 덜 차면 count 쿼리를 생략한다")
+    public void nativeProjectionCountMode() {
+        //given
+        long total = memberRepository.count() + 1;
+        memberRepository.save(new Member("nativeCount", 10));
+        em.flush();
+        em.clear();
+
+        //when
+        QueryCounter.start();
+        Page<MemberProjection> all = memberRepository.findByNativeProjection(PageRequest.of(0, (int) total + 10), CountMode.CACHED);
+        QueryCount shortCount = QueryCounter.stop();
+        Page<MemberProjection> first = memberRepository.findByNativeProjection(PageRequest.of(0, 1), CountMode.CACHED);
+
+        //then
+        assertThat(all.getTotalElements()).isEqualTo(total);
+        assertThat(shortCount.getSelectCount()).isEqualTo(1);  //count 쿼리 없음
+        assertThat(first.getContent()).hasSize(1);
+        assertThat(first.getTotalElements()).isEqualTo(total);
+    }
+
+    @Test
+    @DisplayName("비동기로 조회한다")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  //다른 쓰레드에서 조회하니까 커밋된 데이터로
+    public void findAsync() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("async1", 10));
+
+        try {
+            //when
+            Member findMember = memberRepository.findAsyncById(member.getId()).get();
+            Page<Member> page = memberRepository.findAsyncBy(PageRequest.of(0, 3)).get();
+
+            //then
+            assertThat(findMember.getUsername()).isEqualTo("async1");
+            assertThat(page.getContent()).hasSizeLessThanOrEqualTo(3);
+        } finally {
+            //커밋된 데이터라 롤백되지 않는다. 다른 테스트의 건수 검증(paging)이 깨지지 않게 지운다.
+            memberRepository.deleteById(member.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("리포지토리 메서드별 통계를 남긴다")
+    public void repositoryMetrics() {
+        //given
+        memberRepository.save(new Member("metrics", 10));
+        memberRepository.save(new Member("metrics", 20));
+        em.flush();
+        em.clear();
+        String name = "MemberRepository.findByUsernameAndAgeGreaterThan(String, int)";
+        memberRepository.findByUsernameAndAgeGreaterThan("metrics", 100);  //통계 등록
+        MethodStats stats = repositoryMetrics.get(name);
+        long callsBefore = stats.getCalls();
+        long rowsBefore = (long) stats.snapshot().get("rows");
+        long entitiesBefore = (long) stats.snapshot().get("entities");
+
+        //when
+        List<Member> result = memberRepository.findByUsernameAndAgeGreaterThan("metrics", 0);
+
+        //then
+        assertThat(result).hasSize(2);
+        assertThat(stats.getCalls()).isEqualTo(callsBefore + 1);
+        assertThat((long) stats.snapshot().get("rows")).isEqualTo(rowsBefore + 2);
+        assertThat((long) stats.snapshot().get("entities")).isEqualTo(entitiesBefore + 2);
+
+        //JdbcTemplate 으로 바로 실행하는 메서드도 SQL 수가 잡힌다.
+        memberRepository.findMemberDtoPage(PageRequest.of(0, 10), CountMode.EXACT);
+        MethodStats jdbcStats = repositoryMetrics.get("MemberRepository.findMemberDtoPage(Pageable, CountMode)");
+        assertThat((long) jdbcStats.snapshot().get("statements")).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("엔티티 없이 JDBC 에서 바로 DTO 로 페이징 조회한다")
+    public void findMemberDtoPage() {
+        //given
+        Team team = teamRepository.save(new Team("dtoTeam"));
+        memberRepository.save(new Member("dto1", 10, team));
+        memberRepository.save(new Member("dto2", 10));
+        em.flush();
+        em.clear();
 
+        //when
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(
+                PageRequest.of(0, 2000, Sort.by(Sort.Direction.DESC, "id")), CountMode.EXACT);
+
+        //then
+        assertThat(page.getContent()).extracting("username").contains("dto1", "dto2");
+        assertThat(page.getContent()).filteredOn("username", "dto1").extracting("teamName").containsOnlyNulls();  //team join 안함
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+        //리포지토리 프록시가 IllegalArgumentException 을 InvalidDataAccessApiUsageException 으로 바꾼다.
+        assertThatThrownBy(() -> memberRepository.findMemberDtoPage(PageRequest.of(0, 10, Sort.by("createBy")), CountMode.EXACT))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("생성된 프로젝션 클래스로 조회한다")
+    public void generatedProjections() {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("gen1", 7, teamA));
+        em.flush();
+        em.clear();
+
+        //when
+        List<UsernameOnlyDto> result = memberRepository.findProjectionDtoByUsername("gen1");
+        Page<MemberProjectionDto> page = memberRepository.findProjectionDtoPage(PageRequest.of(0, 2000));
+
+        //then
+        assertThat(result).extracting(UsernameOnly::geUsername).containsExactly("gen1 7");
+        assertThat(page.getContent()).filteredOn(p -> "gen1".equals(p.getUsername()))
+                .extracting(MemberProjection::getTeamName).containsExactly("teamA");
+    }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("낙관적 락 충돌나면 새 트랜잭션으로 다시 실행한다")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  //시도마다 커밋되어야 한다.
+    public void optimisticRetry() {
+        //given
+        Member member = memberRepository.save(new Member("optimistic", 10));
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            //when
+            int age = optimisticRetryExecutor.execute(status -> {
+                Member target = memberRepository.findById(member.getId()).get();
+                if (attempts.incrementAndGet() == 1) {
+                    //읽은 다음에 다른 트랜잭션이 먼저 수정하고 커밋
+                    optimisticRetryExecutor.execute(other -> {
+                        memberRepository.findById(member.getId()).get().setAge(20);
+                        return null;
+                    });
+                }
+                target.setAge(target.getAge() + 1);
+                return target.getAge();
+            });
+
+            //then
+            assertThat(attempts.get()).isEqualTo(2);
+            assertThat(age).isEqualTo(21);
+            Member result = memberRepository.findById(member.getId()).get();
+            assertThat(result.getAge()).isEqualTo(21);
+            assertThat(result.getVersion()).isEqualTo(2L);
+        } finally {
+            //커밋된 데이터라 롤백되지 않는다. 다른 테스트의 건수 검증(bulkUpdate)이 깨지지 않게 지운다.
+            memberRepository.deleteById(member.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("팀 목록에서 members 를 건드려도 쿼리 수가 팀 수와 상관없다")
+    public void teamMembersBatchFetch() {
+        //given
+        List<Team> teams = IntStream.range(0, 5)
+                .mapToObj(i -> teamRepository.save(new Team("batchTeam" + i)))
+                .collect(Collectors.toList());
+        teams.forEach(team -> memberRepository.save(new Member(team.getName() + "-member", 10, team)));
+        em.flush();
+        em.clear();
+
+        //when
+        QueryCounter.start();
+        List<Team> loaded = em.createQuery("select t from Team t where t.name like 'batchTeam%'", Team.class)
+                .getResultList();
+        int memberCount = loaded.stream().mapToInt(team -> team.getMembers().size()).sum();
+        QueryCount count = QueryCounter.stop();
+
+        //then
+        assertThat(memberCount).isEqualTo(5);
+        assertThat(count.getSelectCount()).isEqualTo(2);  //팀 1 + 멤버 in (...) 1
+
+        //멤버 추가는 컬렉션을 초기화하지 않는다.
+        em.clear();
+        Team team = em.find(Team.class, teams.get(0).getId());
+        QueryCounter.start();
+        Member added = new Member("added", 10, team);
+        QueryCount addCount = QueryCounter.stop();
+        assertThat(addCount.getSelectCount()).isEqualTo(0);
+        assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+
+        memberRepository.save(added);
+        em.flush();
+        assertThat(team.getMembers()).extracting("username")
+                .containsExactlyInAnyOrder("batchTeam0-member", "added");
+
+        //준영속이고 초기화 안된 컬렉션은 건너뛴다. (LazyInitializationException 안남)
+        em.clear();
+        Team detached = em.find(Team.class, teams.get(1).getId());
+        em.detach(detached);
+        new Member("detached", 10, detached);
+        assertThat(Hibernate.isInitialized(detached.getMembers())).isFalse();
+    }
+
+    @Test
+    @DisplayName("호출할때 정한 연관관계만 같이 가져온다")
+    public void fetchPlan() {
+        //given
+        Team team = teamRepository.save(new Team("planTeam"));
+        memberRepository.save(new Member("plan1", 10, team));
+        memberRepository.save(new Member("plan2", 10, team));
+        em.flush();
+        em.clear();
+        em.getEntityManagerFactory().getCache().evict(Team.class);
+        PageRequest pageRequest = PageRequest.of(0, 2000);
+
+        //when
+        List<Member> none = memberRepository.findAll(pageRequest, FetchPlan.NONE).getContent();
+        em.clear();
+        QueryCounter.start();
+        List<Member> withTeam = memberRepository.findAll(pageRequest, FetchPlan.of("team")).getContent();
+        withTeam.forEach(member -> {
+            if (member.getTeam() != null) {
+                member.getTeam().getName();
+            }
+        });
+        QueryCount withTeamCount = QueryCounter.stop();
+        em.clear();
+        List<Member> withMembers = memberRepository.findByUsername("plan1", FetchPlan.of("team", "team.members"));
+
+        //then
+        assertThat(none).filteredOn("username", "plan1").allMatch(member -> !Hibernate.isInitialized(member.getTeam()));
+        assertThat(withTeam).filteredOn("username", "plan1").allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+        assertThat(withTeamCount.getSelectCount()).isEqualTo(1);
+        assertThat(withMembers).hasSize(1);
+        assertThat(Hibernate.isInitialized(withMembers.get(0).getTeam().getMembers())).isTrue();
+        assertThatThrownBy(() -> memberRepository.findAll(pageRequest, FetchPlan.of("team.members")))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("StatelessSession 으로 읽으면 영속성 컨텍스트에 남지 않고 같은 팀은 하나로 합친다")
+    public void readOnlyScan() {
+        //given
+        Team team = teamRepository.save(new Team("statelessTeam"));
+        memberRepository.save(new Member("stateless1", 10, team));
+        memberRepository.save(new Member("stateless2", 20, team));
+        memberRepository.save(new Member("stateless3", 30));
+        em.flush();
+        em.clear();
+
+        //when
+        List<Member> scanned = new ArrayList<>();
+        long count = memberRepository.readOnlyScan(member -> {
+            if (member.getUsername() != null && member.getUsername().startsWith("stateless")) {
+                scanned.add(member);
+            }
+        });
+
+        //then
+        assertThat(count).isGreaterThanOrEqualTo(3);
+        assertThat(scanned).extracting("username").containsExactlyInAnyOrder("stateless1", "stateless2", "stateless3");
+        Member member1 = scanned.stream().filter(m -> m.getUsername().equals("stateless1")).findFirst().get();
+        Member member2 = scanned.stream().filter(m -> m.getUsername().equals("stateless2")).findFirst().get();
+        assertThat(member1.getTeam()).isSameAs(member2.getTeam());
+        assertThat(member1.getTeam().getName()).isEqualTo("statelessTeam");
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+    }
+}